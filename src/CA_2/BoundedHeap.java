@@ -0,0 +1,134 @@
+package CA_2;
+
+import java.util.Comparator;
+
+/**
+ * BoundedHeap keeps the k smallest elements offered to it, so the first k
+ * of a big array in sorted order can be found without sorting all of it.
+ *
+ * It is a max-heap of at most k elements: the root is the biggest of the
+ * ones kept. A new element only goes in if it is smaller than the root,
+ * which then drops out. That is O(n log k) for n elements, and most
+ * elements are turned away after a single comparison with the root.
+ *
+ * Stable like the sorts: every element remembers when it was offered and
+ * equal elements are ordered by that, so toSortedArray() gives exactly
+ * the first k of a stable sort of everything offered.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class BoundedHeap<T> {
+
+    private final Object[] elements;
+    private final long[] offerNumbers;  // when each element was offered, for ties
+    private final Comparator<? super T> comparator;
+    private int size;
+    private long offered;
+
+    /**
+     * @param capacity   Most elements to keep (k)
+     * @param comparator Order to keep the smallest elements of
+     */
+    public BoundedHeap(int capacity, Comparator<? super T> comparator) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.elements = new Object[capacity];
+        this.offerNumbers = new long[capacity];
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the element if it is among the k smallest offered so far.
+     */
+    public void offer(T element) {
+        long offerNumber = offered++;
+        if (size < elements.length) {
+            elements[size] = element;
+            offerNumbers[size] = offerNumber;
+            siftUp(size++);
+        } else if (size > 0 && comparator.compare(element, elementAt(0)) < 0) {
+            // smaller than the biggest kept one (an equal one was offered
+            // later, so it counts as bigger and is turned away)
+            elements[0] = element;
+            offerNumbers[0] = offerNumber;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * The kept elements from smallest to biggest. Empties the heap.
+     */
+    public T[] toSortedArray(T[] array) {
+        // heapsort: move the root (biggest) to the end of the part still a heap
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        for (int i = 0; i < size; i++) {
+            array[i] = elementAt(i);
+            elements[i] = null;
+        }
+        size = 0;
+        return array;
+    }
+
+    // heap helpers, the children of i are 2i + 1 and 2i + 2
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+        return (T) elements[index];
+    }
+
+    /**
+     * True if element a comes after element b, counting when they were offered.
+     */
+    private boolean isAfter(int a, int b) {
+        int result = comparator.compare(elementAt(a), elementAt(b));
+        return result > 0 || (result == 0 && offerNumbers[a] > offerNumbers[b]);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isAfter(index, parent)) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int end) {
+        while (true) {
+            int biggest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < end && isAfter(left, biggest)) {
+                biggest = left;
+            }
+            if (right < end && isAfter(right, biggest)) {
+                biggest = right;
+            }
+            if (biggest == index) {
+                return;
+            }
+            swap(index, biggest);
+            index = biggest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object element = elements[a];
+        elements[a] = elements[b];
+        elements[b] = element;
+        long offerNumber = offerNumbers[a];
+        offerNumbers[a] = offerNumbers[b];
+        offerNumbers[b] = offerNumber;
+    }
+}
@@ -0,0 +1,401 @@
+package CA_2;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CsvTokenizer walks the raw bytes of a comma separated file and records
+ * where each field of the current record starts and ends.
+ * Nothing is allocated per record: Strings are only created when a caller
+ * asks for a field, and amounts can be parsed straight from the bytes.
+ *
+ * The bytes are read from a ByteBuffer with absolute get(int), so a
+ * memory-mapped file is tokenized where it is, without copying it to the
+ * heap first. A byte array is simply wrapped.
+ *
+ * Follows RFC 4180: fields may be wrapped in double quotes, a quoted field
+ * can contain commas and line breaks, and a quote inside a quoted field is
+ * written as two quotes. Unquoted fields are trimmed like String.trim().
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class CsvTokenizer {
+
+    private static final byte COMMA = ',';
+    private static final byte QUOTE = '"';
+    private static final byte NEWLINE = '\n';
+
+    private ByteBuffer data;
+    private int position;
+    private int end;
+    private int limit;
+
+    // offsets of the fields in the current record
+    private int fieldCount;
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private boolean[] fieldEscaped = new boolean[16];
+
+    private int recordStart;
+    private int recordEnd;
+    private boolean recordComplete;
+
+    // reused when unescaping quoted fields
+    private byte[] scratch = new byte[128];
+
+    // small direct-mapped cache of field bytes -> shared String, see getInternedString
+    private static final int INTERN_CACHE_SIZE = 256;
+    private byte[][] internKeys;
+    private String[] internValues;
+
+    /**
+     * Points the tokenizer at a region of a byte array.
+     * Records are only started before {@code end}, but the last one may run
+     * on up to {@code limit} to finish a quoted field or line.
+     *
+     * @param data  Array holding the file bytes
+     * @param start Offset of the first record
+     * @param end   Records starting at or after this offset are left alone
+     * @param limit Offset the tokenizer must never read past
+     */
+    public void reset(byte[] data, int start, int end, int limit) {
+        reset(ByteBuffer.wrap(data), start, end, limit);
+    }
+
+    /**
+     * Points the tokenizer at a region of a buffer, e.g. a mapped file.
+     * Offsets are indexes into the buffer; its position and limit are
+     * not used or changed.
+     *
+     * @param data  Buffer holding the file bytes
+     * @param start Offset of the first record
+     * @param end   Records starting at or after this offset are left alone
+     * @param limit Offset the tokenizer must never read past
+     */
+    public void reset(ByteBuffer data, int start, int end, int limit) {
+        this.data = data;
+        this.position = start;
+        this.end = end;
+        this.limit = limit;
+        this.fieldCount = 0;
+        this.recordStart = start;
+        this.recordEnd = start;
+        this.recordComplete = true;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false when there are no more records starting before the end offset
+     */
+    public boolean nextRecord() {
+        if (position >= end) {
+            return false;
+        }
+
+        fieldCount = 0;
+        recordStart = position;
+        recordComplete = false;
+
+        int pos = position;
+        while (true) {
+            // skip leading whitespace like String.trim()
+            while (pos < limit && isBlank(data.get(pos))) {
+                pos++;
+            }
+
+            int start;
+            int stop;
+            boolean escaped = false;
+
+            if (pos < limit && data.get(pos) == QUOTE) {
+                // quoted field, runs until a quote that is not doubled
+                start = pos + 1;
+                pos = start;
+                while (true) {
+                    if (pos >= limit) {
+                        stop = pos;
+                        break;
+                    }
+                    if (data.get(pos) == QUOTE) {
+                        if (pos + 1 < limit && data.get(pos + 1) == QUOTE) {
+                            escaped = true;
+                            pos += 2;
+                            continue;
+                        }
+                        stop = pos;
+                        pos++;
+                        break;
+                    }
+                    pos++;
+                }
+
+                // ignore anything between the closing quote and the next separator
+                while (pos < limit && data.get(pos) != COMMA && data.get(pos) != NEWLINE) {
+                    pos++;
+                }
+            } else {
+                start = pos;
+                while (pos < limit) {
+                    byte b = data.get(pos);
+                    if (b == COMMA || b == NEWLINE) {
+                        break;
+                    }
+                    pos++;
+                }
+                stop = pos;
+
+                // trim trailing whitespace, this also drops the \r of a \r\n line ending
+                while (stop > start && isBlank(data.get(stop - 1))) {
+                    stop--;
+                }
+            }
+
+            addField(start, stop, escaped);
+
+            if (pos >= limit) {
+                recordEnd = pos;
+                position = pos;
+                break;
+            }
+
+            byte separator = data.get(pos);
+            pos++;
+            if (separator == NEWLINE) {
+                recordEnd = pos - 1;
+                recordComplete = true;
+                position = pos;
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * True if the current record ended with a line break.
+     * False means it ran into the limit, which is either the end of the file
+     * or a record cut short by the end of the mapped region.
+     */
+    public boolean isRecordComplete() {
+        return recordComplete;
+    }
+
+    /**
+     * Offset of the first byte after the current record, where the next one starts.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    public int getRecordStart() { return recordStart; }
+    public int getRecordEnd() { return recordEnd; }
+    public int getFieldCount() { return fieldCount; }
+
+    /**
+     * 64-bit FNV-1a hash of the raw bytes of the current record.
+     * The line ending is left out so a file saved with \r\n hashes the same.
+     * Never returns 0, callers use that for "no hash".
+     */
+    public long hashRecord() {
+        int stop = recordEnd;
+        if (stop > recordStart && data.get(stop - 1) == '\r') {
+            stop--;
+        }
+
+        long hash = 0xcbf29ce484222325L;
+        for (int i = recordStart; i < stop; i++) {
+            hash ^= data.get(i) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Decodes a field of the current record as a String.
+     * Doubled quotes inside quoted fields are turned back into single quotes.
+     */
+    public String getString(int field) {
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+        if (length == 0) {
+            return "";
+        }
+
+        if (!fieldEscaped[field]) {
+            return decode(start, length);
+        }
+
+        ensureScratch(length);
+
+        // collapse each "" into a single "
+        int out = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = data.get(start + i);
+            scratch[out++] = b;
+            if (b == QUOTE && i + 1 < length && data.get(start + i + 1) == QUOTE) {
+                i++;
+            }
+        }
+        return new String(scratch, 0, out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Like getString, but for columns that repeat the same few values
+     * (gender, position, company...). Returns the StringInterner copy, and
+     * a value seen before in this tokenizer is found by comparing its bytes,
+     * so no String is created for it at all.
+     */
+    public String getInternedString(int field) {
+        if (fieldEscaped[field]) {
+            return StringInterner.intern(getString(field));
+        }
+
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+        if (length == 0) {
+            return "";
+        }
+
+        if (internKeys == null) {
+            internKeys = new byte[INTERN_CACHE_SIZE][];
+            internValues = new String[INTERN_CACHE_SIZE];
+        }
+
+        int hash = 1;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + data.get(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (INTERN_CACHE_SIZE - 1);
+
+        byte[] key = internKeys[slot];
+        if (key != null && key.length == length && sameBytes(key, start)) {
+            return internValues[slot];
+        }
+
+        // miss (or another value in the slot), decode once and remember it
+        String value = StringInterner.intern(decode(start, length));
+        internKeys[slot] = Arrays.copyOf(scratch, length);
+        internValues[slot] = value;
+        return value;
+    }
+
+    /**
+     * Decodes length bytes from start as UTF-8. The bytes are copied into
+     * scratch first (the buffer may be a mapping, not an array), which also
+     * leaves them there for getInternedString.
+     */
+    private String decode(int start, int length) {
+        ensureScratch(length);
+        for (int i = 0; i < length; i++) {
+            scratch[i] = data.get(start + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensureScratch(int length) {
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+
+    private boolean sameBytes(byte[] key, int start) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != data.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a money field like "61000.00" straight from the bytes into cents.
+     * Plain [-]digits[.digits] is read with integer arithmetic, a third decimal
+     * rounds half up and any further ones are ignored. Anything else (exponents,
+     * huge numbers) goes through Double.parseDouble.
+     *
+     * @return The amount in cents, or 0 if the field is not a number
+     */
+    public long getCents(int field) {
+        int pos = fieldStart[field];
+        int stop = fieldEnd[field];
+        if (pos >= stop) {
+            return 0;
+        }
+
+        boolean negative = data.get(pos) == '-';
+        if (negative) {
+            pos++;
+        }
+
+        long whole = 0;
+        int wholeDigits = 0;
+        int cents = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        boolean seenPoint = false;
+
+        for (; pos < stop; pos++) {
+            byte b = data.get(pos);
+            if (b >= '0' && b <= '9') {
+                int digit = b - '0';
+                if (!seenPoint) {
+                    // 16 digits of whole units still fit a long once multiplied by 100
+                    if (++wholeDigits > 16) {
+                        return parseCentsSlow(field);
+                    }
+                    whole = whole * 10 + digit;
+                } else {
+                    decimals++;
+                    if (decimals <= 2) {
+                        cents = cents * 10 + digit;
+                    } else if (decimals == 3) {
+                        roundUp = digit >= 5;
+                    }
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return parseCentsSlow(field);
+            }
+        }
+
+        if (wholeDigits == 0 && decimals == 0) {
+            return parseCentsSlow(field);
+        }
+        if (decimals == 1) {
+            cents *= 10;
+        }
+
+        long value = whole * 100 + cents + (roundUp ? 1 : 0);
+        return negative ? -value : value;
+    }
+
+    private long parseCentsSlow(int field) {
+        try {
+            return SalaryCents.fromDouble(Double.parseDouble(getString(field)));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void addField(int start, int stop, boolean escaped) {
+        if (fieldCount == fieldStart.length) {
+            int newSize = fieldCount * 2;
+            fieldStart = Arrays.copyOf(fieldStart, newSize);
+            fieldEnd = Arrays.copyOf(fieldEnd, newSize);
+            fieldEscaped = Arrays.copyOf(fieldEscaped, newSize);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = stop;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    private static boolean isBlank(byte b) {
+        // same characters String.trim() removes, apart from the newline separator
+        return b >= 0 && b <= ' ' && b != NEWLINE;
+    }
+}
@@ -1,6 +1,7 @@
 package CA_2;
 
 import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * Department class is the parent class for all department types.
@@ -35,13 +36,47 @@ public abstract class Department {
      */
     public Department(String departmentName, DepartmentType departmentType) {
         this.departmentId = generateDepartmentId(departmentName);
-        this.departmentName = departmentName;
+        this.departmentName = StringInterner.intern(departmentName);
         this.departmentType = departmentType;
         this.departmentHead = null;
         this.staffMembers = new ArrayList<>();
         this.staffCount = 0;
     }
 
+    /**
+     * Finds a department in the list by name, ignoring case, or creates it.
+     * Every place that puts employees into departments (loading, reloading,
+     * the log, the menu, the random generator) goes through here, so they
+     * all end up with the same departments.
+     *
+     * @param departmentList All departments, a new one is added to it
+     * @param departmentName Name of the department
+     * @return The existing or new department
+     */
+    public static Department findOrCreate(ArrayList<Department> departmentList, String departmentName) {
+        // Check if department already exists in our list
+        for (Department dept : departmentList) {
+            if (dept.getDepartmentName().equalsIgnoreCase(departmentName)) {
+                return dept;
+            }
+        }
+
+        // Department doesn't exist, so create a new one
+        // Try to match the department name to a DepartmentType enum value
+        DepartmentType deptType = DepartmentType.fromDisplayName(departmentName);
+
+        // If no match found, use COMPUTER_SCIENCE as default
+        if (deptType == null) {
+            deptType = DepartmentType.COMPUTER_SCIENCE;
+        }
+
+        // Create new department as AcademicDepartment (suitable for school)
+        Department newDept = new AcademicDepartment(departmentName, deptType);
+        departmentList.add(newDept);
+
+        return newDept;
+    }
+
     /**
      * Generates a unique department ID
      */
@@ -76,6 +111,28 @@ public abstract class Department {
         return true;
     }
 
+    /**
+     * Adds a staff member that is known not to be in this department yet.
+     * Skips the contains() check, which made bulk loading quadratic.
+     */
+    void addNewStaff(Employee employee) {
+        staffMembers.add(employee);
+        employee.setDepartment(this);
+        staffCount = staffMembers.size();
+    }
+
+    /**
+     * Removes a batch of staff members in one pass over the list.
+     * Used when a reload of the data file drops or moves employees.
+     */
+    void removeStaff(Set<Employee> removed) {
+        staffMembers.removeIf(removed::contains);
+        staffCount = staffMembers.size();
+        if (departmentHead != null && removed.contains(departmentHead)) {
+            departmentHead = null;
+        }
+    }
+
     public String getDepartmentName() { return departmentName; }
     public String getDepartmentTypeString() { return departmentType != null ? departmentType.getDisplayName() : "Unknown"; }
 
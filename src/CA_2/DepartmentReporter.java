@@ -5,6 +5,9 @@ import java.util.ArrayList;
 /**
  * DepartmentReporter handles displaying department statistics and reports.
  * Groups departments by category and shows staff counts.
+ * Staff counts come from one pass over the column store's department ids
+ * instead of a scan of the employee list for every department, and the
+ * payroll total is added up in cents.
  *
  * @author Rafael Valentim Ribeiro
  * @version 1.0
@@ -13,11 +16,17 @@ public class DepartmentReporter {
 
     private ArrayList<Employee> employeeList;
     private ArrayList<Department> departmentList;
+    private EmployeeColumnStore columnStore;
+
+    // staff count per department id, worked out once per report
+    private int[] staffCounts;
 
     public DepartmentReporter(ArrayList<Employee> employeeList,
-                              ArrayList<Department> departmentList) {
+                              ArrayList<Department> departmentList,
+                              EmployeeColumnStore columnStore) {
         this.employeeList = employeeList;
         this.departmentList = departmentList;
+        this.columnStore = columnStore;
     }
 
     /**
@@ -31,6 +40,8 @@ public class DepartmentReporter {
             return;
         }
 
+        staffCounts = columnStore.countPerDepartment();
+
         System.out.println("\n========================================");
         System.out.println("DEPARTMENT STATISTICS REPORT");
         System.out.println("========================================\n");
@@ -155,6 +166,9 @@ public class DepartmentReporter {
         System.out.println("Average Staff per Department: " +
                 (departmentList.size() > 0 ? employeeList.size() / departmentList.size() : 0));
 
+        // salaries are whole cents, so the total is exact
+        System.out.println("Total Payroll: " + SalaryCents.format(columnStore.sumSalaryCents()));
+
         // find largest department
         Department largest = null;
         int maxStaff = 0;
@@ -178,13 +192,8 @@ public class DepartmentReporter {
      * Counts how many staff members are in a department
      */
     private int getStaffCountForDepartment(Department dept) {
-        int count = 0;
-        for (Employee emp : employeeList) {
-            if (emp.getDepartment() != null && emp.getDepartment().equals(dept)) {
-                count++;
-            }
-        }
-        return count;
+        int id = columnStore.findDepartmentId(dept);
+        return id >= 0 ? staffCounts[id] : 0;
     }
 
     // helper methods to check department categories
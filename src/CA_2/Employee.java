@@ -1,5 +1,7 @@
 package CA_2;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Employee class is the parent class for all employee types.
  * Contains common attributes and methods shared by all employees.
@@ -15,7 +17,7 @@ public class Employee {
     protected String lastName;
     protected String gender;
     protected String email;
-    protected double salary;
+    protected long salaryCents;     // salary in cents, see SalaryCents
     protected String position;
     protected String jobTitle;
     protected String company;
@@ -23,6 +25,17 @@ public class Employee {
     protected Department department;
     protected boolean isRandomlyGenerated;
 
+    // hash of the data file row this employee was loaded from,
+    // 0 if they were added in the program instead
+    protected long sourceRowHash;
+
+    // lowercase "first\0last" used for sorting and searching, see EmployeeNameKey.
+    // Built the first time it is needed (possibly on a sorting thread) and set
+    // back to null when the name changes. nameKeyPrefix is written before
+    // nameKey, so whoever sees the key also sees its prefix.
+    protected volatile String nameKey;
+    protected long nameKeyPrefix;
+
     /**
      * Default constructor
      */
@@ -32,45 +45,50 @@ public class Employee {
         this.lastName = "";
         this.gender = "";
         this.email = "";
-        this.salary = 0.0;
+        this.salaryCents = 0;
         this.position = "";
         this.jobTitle = "";
         this.company = "";
         this.manager = null;
         this.department = null;
         this.isRandomlyGenerated = false;
+        this.sourceRowHash = 0;
     }
 
     /**
-     * Constructor with parameters
+     * Constructor with parameters.
+     * Gender, position, job title and company repeat on most rows, so they
+     * are swapped for the shared copy from StringInterner.
      */
     public Employee(String firstName, String lastName, String gender, String email,
                     double salary, String position, String jobTitle, String company) {
         this.employeeId = generateEmployeeId(firstName, lastName);
         this.firstName = firstName;
         this.lastName = lastName;
-        this.gender = gender;
+        this.gender = StringInterner.intern(gender);
         this.email = email;
-        this.salary = salary;
-        this.position = position;
-        this.jobTitle = jobTitle;
-        this.company = company;
+        this.salaryCents = SalaryCents.fromDouble(salary);
+        this.position = StringInterner.intern(position);
+        this.jobTitle = StringInterner.intern(jobTitle);
+        this.company = StringInterner.intern(company);
         this.manager = null;
         this.department = null;
         this.isRandomlyGenerated = false;
+        this.sourceRowHash = 0;
     }
 
     /**
      * Generates a unique employee ID.
      * Format: First letter of first name + last name + random 3 digits
+     * Uses ThreadLocalRandom so employees can be created on parallel threads.
      */
     private String generateEmployeeId(String firstName, String lastName) {
         if (firstName == null || lastName == null || firstName.isEmpty() || lastName.isEmpty()) {
-            return "EMP" + (int)(Math.random() * 10000);
+            return "EMP" + ThreadLocalRandom.current().nextInt(10000);
         }
         String id = firstName.substring(0, 1).toUpperCase() +
                 lastName.toUpperCase() +
-                (int)(Math.random() * 1000);
+                ThreadLocalRandom.current().nextInt(1000);
         return id;
     }
 
@@ -79,7 +97,8 @@ public class Employee {
     public String getLastName() { return lastName; }
     public String getFullName() { return firstName + " " + lastName; }
     public String getEmail() { return email; }
-    public double getSalary() { return salary; }
+    public double getSalary() { return SalaryCents.toDouble(salaryCents); }
+    public long getSalaryCents() { return salaryCents; }
     public String getJobTitle() { return jobTitle; }
     public Manager getManager() { return manager; }
     public Department getDepartment() { return department; }
@@ -93,6 +112,40 @@ public class Employee {
         this.isRandomlyGenerated = value;
     }
 
+    /**
+     * The name key, built now if the employee doesn't have one yet.
+     */
+    String getNameKey() {
+        String key = nameKey;
+        if (key == null) {
+            key = EmployeeNameKey.of(firstName, lastName);
+            nameKeyPrefix = EmployeeNameKey.prefixOf(key);
+            nameKey = key;
+        }
+        return key;
+    }
+
+    long getSourceRowHash() { return sourceRowHash; }
+    void setSourceRowHash(long sourceRowHash) { this.sourceRowHash = sourceRowHash; }
+    void setSalaryCents(long salaryCents) { this.salaryCents = salaryCents; }
+
+    /**
+     * Copies the details read from a changed row of the data file.
+     * The ID, manager and department stay as they are.
+     */
+    void copyDetailsFrom(Employee other) {
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.nameKey = null;    // the name may have changed
+        this.gender = other.gender;
+        this.email = other.email;
+        this.salaryCents = other.salaryCents;
+        this.position = other.position;
+        this.jobTitle = other.jobTitle;
+        this.company = other.company;
+        this.sourceRowHash = other.sourceRowHash;
+    }
+
     /**
      * Displays employee information
      */
@@ -103,7 +156,7 @@ public class Employee {
         System.out.println("Name: " + getFullName());
         System.out.println("Gender: " + gender);
         System.out.println("Email: " + email);
-        System.out.println("Salary: " + salary);
+        System.out.println("Salary: " + getSalary());
         System.out.println("Position: " + position);
         System.out.println("Job Title: " + jobTitle);
         System.out.println("Company: " + company);
@@ -0,0 +1,178 @@
+package CA_2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * EmployeeBackgroundLoader reads the data file on a background thread so
+ * the menu can be used while a big file is still loading.
+ *
+ * The background thread only parses: EmployeeFileLoader hands it the
+ * chunks in file order and they are queued. The lists are not thread safe,
+ * so the menu thread adds the queued chunks (applyPendingBatches) between
+ * menu options. Every option therefore works on a consistent part of the
+ * file, the first N whole chunks, that does not change while it runs.
+ *
+ * Managers are only worked out once the whole file is in, the same as a
+ * normal load; until then the loaded employees have no manager yet.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeBackgroundLoader {
+
+    private EmployeeFileLoader fileLoader;
+
+    private String filename;
+    private long startOffset;
+    private long totalBytes;
+    private long startNanos;
+    private Thread loaderThread;
+
+    private final LinkedBlockingQueue<EmployeeFileLoader.ChunkResult> batches = new LinkedBlockingQueue<>();
+
+    // written by the loader thread, read by the menu thread
+    private volatile int rowsParsed;
+    private volatile long bytesParsed;
+    private volatile boolean finished;
+    private volatile IOException failure;
+
+    // only used by the menu thread: true from start() until the last chunk is added
+    private boolean loading;
+    private int rowsAdded;
+
+    public EmployeeBackgroundLoader(EmployeeFileLoader fileLoader) {
+        this.fileLoader = fileLoader;
+    }
+
+    /**
+     * Starts reading the file from an offset on a background thread.
+     *
+     * @param filename    Path of the applicants file
+     * @param startOffset Offset of the first record to load
+     */
+    public void start(String filename, long startOffset) {
+        this.filename = filename;
+        this.startOffset = startOffset;
+        this.totalBytes = Math.max(0, new File(filename).length() - startOffset);
+        this.startNanos = System.nanoTime();
+        this.rowsParsed = 0;
+        this.bytesParsed = 0;
+        this.rowsAdded = 0;
+        this.finished = false;
+        this.failure = null;
+        this.loading = true;
+        batches.clear();
+
+        loaderThread = new Thread(this::readFile, "employee-file-loader");
+        loaderThread.setDaemon(true);
+        loaderThread.start();
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * The error that stopped the load, or null if it read the whole file.
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Adds the chunks parsed so far to the lists. Must be called from the
+     * thread that owns the lists.
+     *
+     * @return true if the load is over and this call added its last chunk
+     */
+    public boolean applyPendingBatches() {
+        if (!loading) {
+            return false;
+        }
+
+        // checked before draining, so a chunk queued just before the end isn't missed
+        boolean done = finished;
+
+        EmployeeFileLoader.ChunkResult batch;
+        while ((batch = batches.poll()) != null) {
+            rowsAdded += fileLoader.addRows(batch);
+        }
+
+        if (done) {
+            loading = false;
+            loaderThread = null;
+        }
+        return done;
+    }
+
+    /**
+     * Adds chunks as they are parsed until the load is over or the time is up.
+     *
+     * @param timeoutMillis Longest time to wait
+     * @return true if the load is over, false if it is still going
+     */
+    public boolean waitUntilLoaded(long timeoutMillis) {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        while (loading) {
+            if (applyPendingBatches()) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                loaderThread.join(Math.max(1, Math.min(remaining / 1_000_000L, 50)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shows how far the load is: rows, percent of the file and time left.
+     */
+    public void displayProgress() {
+        long bytes = bytesParsed;
+        double fraction = totalBytes > 0 ? Math.min(1.0, (double) bytes / totalBytes) : 1.0;
+        double elapsed = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+
+        String timeLeft;
+        if (bytes > 0) {
+            timeLeft = String.format("about %.0f s left", elapsed * (totalBytes - bytes) / bytes);
+        } else {
+            timeLeft = "estimating time left";
+        }
+
+        System.out.println("Loading in background: " + rowsParsed + " rows parsed (" +
+                String.format("%.0f%% of %.1f MB", fraction * 100, totalBytes / (1024.0 * 1024.0)) +
+                "), " + timeLeft + ". " + rowsAdded + " employees available so far.");
+    }
+
+    // loader thread
+
+    private void readFile() {
+        try {
+            fileLoader.readFile(filename, startOffset, batch -> {
+                batches.add(batch);
+                rowsParsed += batch.rowCount;
+                bytesParsed = batch.nextRecordStart - startOffset;
+            });
+        } catch (IOException e) {
+            failure = e;
+        }
+        finished = true;
+    }
+}
@@ -0,0 +1,307 @@
+package CA_2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * EmployeeColumnStore keeps the employee fields that reports and scans use
+ * in one array per field (struct of arrays) next to the Employee objects.
+ *
+ * Walking ArrayList&lt;Employee&gt; jumps to a different object, and often a
+ * different String, for every row. Here a count, sum or filter is a loop
+ * over a primitive array:
+ * - salary in cents as a long per row, so totals are exact
+ * - department as an int id, see getDepartment(id)
+ * - gender, position, job title and company as StringDictionary codes
+ * - the lowercase "first last" name as UTF-8 bytes packed one after the
+ *   other, nameOffsets[row] to nameOffsets[row + 1]. It is the employee's
+ *   name key (EmployeeNameKey) with a space for the separator, so a scan
+ *   of these bytes finds exactly the employees the key search finds.
+ *
+ * Row numbers are the positions in the employee list, and getEmployee(row)
+ * hands back the Employee object for a row found by a scan.
+ * The store is kept up to date by EmployeeIndexRegistry.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeColumnStore implements EmployeeIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int rowCount;
+    private Employee[] employees;
+    private long[] salaryCents;
+    private int[] departmentIds;
+    private int[] genderCodes;
+    private int[] positionCodes;
+    private int[] jobTitleCodes;
+    private int[] companyCodes;
+
+    // lowercase full names, row i is nameBytes[nameOffsets[i] .. nameOffsets[i + 1])
+    private byte[] nameBytes;
+    private int[] nameOffsets;
+
+    private ArrayList<Department> departments;
+    private IdentityHashMap<Department, Integer> departmentIdMap;
+    private StringDictionary genders;
+    private StringDictionary positions;
+    private StringDictionary jobTitles;
+    private StringDictionary companies;
+
+    public EmployeeColumnStore() {
+        rebuild(new ArrayList<>());
+    }
+
+    @Override
+    public void add(Employee employee) {
+        ensureCapacity(rowCount + 1);
+
+        int row = rowCount;
+        employees[row] = employee;
+        salaryCents[row] = employee.getSalaryCents();
+        departmentIds[row] = departmentIdOf(employee.getDepartment());
+        genderCodes[row] = genders.encode(employee.gender);
+        positionCodes[row] = positions.encode(employee.position);
+        jobTitleCodes[row] = jobTitles.encode(employee.jobTitle);
+        companyCodes[row] = companies.encode(employee.company);
+
+        byte[] name = employee.getNameKey().replace(EmployeeNameKey.SEPARATOR, ' ')
+                .getBytes(StandardCharsets.UTF_8);
+        int start = nameOffsets[row];
+        if (start + name.length > nameBytes.length) {
+            nameBytes = Arrays.copyOf(nameBytes, Math.max(nameBytes.length * 2, start + name.length));
+        }
+        System.arraycopy(name, 0, nameBytes, start, name.length);
+        nameOffsets[row + 1] = start + name.length;
+
+        rowCount++;
+    }
+
+    @Override
+    public void rebuild(List<Employee> employeeList) {
+        int capacity = Math.max(INITIAL_CAPACITY, employeeList.size());
+        rowCount = 0;
+        employees = new Employee[capacity];
+        salaryCents = new long[capacity];
+        departmentIds = new int[capacity];
+        genderCodes = new int[capacity];
+        positionCodes = new int[capacity];
+        jobTitleCodes = new int[capacity];
+        companyCodes = new int[capacity];
+        nameOffsets = new int[capacity + 1];
+        // names are usually around 15 bytes
+        nameBytes = new byte[capacity * 16];
+
+        departments = new ArrayList<>();
+        departmentIdMap = new IdentityHashMap<>();
+        genders = new StringDictionary();
+        positions = new StringDictionary();
+        jobTitles = new StringDictionary();
+        companies = new StringDictionary();
+
+        for (Employee employee : employeeList) {
+            add(employee);
+        }
+    }
+
+    // view API
+
+    public int getRowCount() { return rowCount; }
+    public Employee getEmployee(int row) { return employees[row]; }
+    public long getSalaryCents(int row) { return salaryCents[row]; }
+    public int getDepartmentId(int row) { return departmentIds[row]; }
+    public int getDepartmentCount() { return departments.size(); }
+
+    /**
+     * Returns the department with an id, or null for -1 (no department).
+     */
+    public Department getDepartment(int departmentId) {
+        return departmentId >= 0 ? departments.get(departmentId) : null;
+    }
+
+    /**
+     * Returns the id of a department, or -1 if nobody in it has been added.
+     */
+    public int findDepartmentId(Department department) {
+        Integer id = departmentIdMap.get(department);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the Employee objects for a list of rows, e.g. a filter result.
+     */
+    public Employee[] getEmployees(int[] rows) {
+        Employee[] result = new Employee[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            result[i] = employees[rows[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Packed lowercase names, see nameOffsets. Only read from them.
+     */
+    public byte[] getNameBytes() { return nameBytes; }
+    public int[] getNameOffsets() { return nameOffsets; }
+
+    // analytical passes
+
+    /**
+     * Counts the employees in each department in one pass.
+     *
+     * @return Staff count indexed by department id
+     */
+    public int[] countPerDepartment() {
+        int[] counts = new int[departments.size()];
+        for (int row = 0; row < rowCount; row++) {
+            int id = departmentIds[row];
+            if (id >= 0) {
+                counts[id]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Adds up salaries per department in one pass.
+     *
+     * @return Salary total in cents indexed by department id
+     */
+    public long[] sumSalaryCentsPerDepartment() {
+        long[] totals = new long[departments.size()];
+        for (int row = 0; row < rowCount; row++) {
+            int id = departmentIds[row];
+            if (id >= 0) {
+                totals[id] += salaryCents[row];
+            }
+        }
+        return totals;
+    }
+
+    public long sumSalaryCents() {
+        long total = 0;
+        for (int row = 0; row < rowCount; row++) {
+            total += salaryCents[row];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the rows with a salary from minCents to maxCents (inclusive).
+     */
+    public int[] filterBySalary(long minCents, long maxCents) {
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            long salary = salaryCents[row];
+            if (salary >= minCents && salary <= maxCents) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns the rows with exactly this position, compared as int codes.
+     */
+    public int[] filterByPosition(String position) {
+        return filterByCode(positionCodes, positions.lookup(position));
+    }
+
+    /**
+     * Returns the rows with exactly this job title, compared as int codes.
+     */
+    public int[] filterByJobTitle(String jobTitle) {
+        return filterByCode(jobTitleCodes, jobTitles.lookup(jobTitle));
+    }
+
+    /**
+     * Returns the rows with exactly this company, compared as int codes.
+     */
+    public int[] filterByCompany(String company) {
+        return filterByCode(companyCodes, companies.lookup(company));
+    }
+
+    /**
+     * Returns the rows with exactly this gender, compared as int codes.
+     */
+    public int[] filterByGender(String gender) {
+        return filterByCode(genderCodes, genders.lookup(gender));
+    }
+
+    /**
+     * Returns the rows in a department.
+     */
+    public int[] filterByDepartment(Department department) {
+        return filterByCode(departmentIds, findDepartmentId(department));
+    }
+
+    /**
+     * Returns the rows whose lowercase "first last" name contains the
+     * search term, by scanning the packed name bytes (see PackedNameScan).
+     *
+     * @param searchTerm Lowercase, trimmed search term
+     */
+    public int[] filterByName(String searchTerm) {
+        return filterByName(searchTerm, PackedNameScan.Kernel.WORD);
+    }
+
+    public int[] filterByName(String searchTerm, PackedNameScan.Kernel kernel) {
+        return PackedNameScan.findRows(nameBytes, nameOffsets, rowCount,
+                searchTerm.getBytes(StandardCharsets.UTF_8), kernel);
+    }
+
+    private int[] filterByCode(int[] column, int code) {
+        if (code < 0) {
+            return new int[0];
+        }
+        int[] rows = new int[16];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (column[row] == code) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    // helpers
+
+    private int departmentIdOf(Department department) {
+        if (department == null) {
+            return -1;
+        }
+        Integer id = departmentIdMap.get(department);
+        if (id == null) {
+            id = departments.size();
+            departments.add(department);
+            departmentIdMap.put(department, id);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= employees.length) {
+            return;
+        }
+        int capacity = Math.max(needed, employees.length * 2);
+        employees = Arrays.copyOf(employees, capacity);
+        salaryCents = Arrays.copyOf(salaryCents, capacity);
+        departmentIds = Arrays.copyOf(departmentIds, capacity);
+        genderCodes = Arrays.copyOf(genderCodes, capacity);
+        positionCodes = Arrays.copyOf(positionCodes, capacity);
+        jobTitleCodes = Arrays.copyOf(jobTitleCodes, capacity);
+        companyCodes = Arrays.copyOf(companyCodes, capacity);
+        nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+    }
+}
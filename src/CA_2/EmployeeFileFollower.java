@@ -0,0 +1,295 @@
+package CA_2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmployeeFileFollower picks up rows that are appended to the data file
+ * while the system is running, like tail -f.
+ *
+ * A background thread watches the file's folder with a WatchService and,
+ * when the file changes, reads only the bytes after the last complete row
+ * it handed over. Those bytes are parsed into employees in small batches
+ * and queued. The lists are not thread safe, so the batches are added by
+ * the menu thread (applyPendingBatches) the same way a load adds them,
+ * which means the menu never waits for the file.
+ *
+ * Rows written into the file by the employee log's compaction are skipped,
+ * the employees in them are already in the lists.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeFileFollower {
+
+    // bytes read and parsed into one batch, doubled for a row that doesn't fit
+    private static final int MAX_BATCH_BYTES = 1 << 20;
+
+    // biggest single row the follower will read before giving up
+    private static final int MAX_ROW_BYTES = 256 << 20;
+
+    // how long the watcher waits before checking if it should stop
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private ArrayList<Department> departmentList;
+    private EmployeeFileLoader fileLoader;
+    private ManagerCreator managerCreator;
+
+    private Path dataPath;
+    private EmployeeWriteAheadLog writeAheadLog;
+    private Thread followerThread;
+    private volatile boolean running;
+
+    // end of the last complete row queued, only used by the follower thread
+    private long committedOffset;
+
+    // how many bytes to read at a time, only used by the follower thread
+    private int batchBytes;
+
+    // end of the last batch added to the lists, only used by the menu thread
+    private long appliedOffset;
+
+    private final LinkedBlockingQueue<EmployeeFileLoader.ChunkResult> batches = new LinkedBlockingQueue<>();
+
+    // set by the follower thread when it has to stop by itself
+    private volatile String stopReason;
+
+    public EmployeeFileFollower(ArrayList<Department> departmentList,
+                                EmployeeFileLoader fileLoader,
+                                ManagerCreator managerCreator) {
+        this.departmentList = departmentList;
+        this.fileLoader = fileLoader;
+        this.managerCreator = managerCreator;
+    }
+
+    /**
+     * Starts following a data file from an offset. Anything still queued
+     * from an earlier run is dropped, the offset says what is loaded.
+     *
+     * @param dataFilename  Path of the applicants file
+     * @param startOffset   End of the rows already loaded, must be the start of a row
+     * @param writeAheadLog Log of the file, to skip the rows it compacts into it, may be null
+     */
+    public void start(String dataFilename, long startOffset, EmployeeWriteAheadLog writeAheadLog) {
+        stop();
+        clearPendingBatches();
+
+        this.dataPath = Paths.get(dataFilename);
+        this.writeAheadLog = writeAheadLog;
+        this.committedOffset = startOffset;
+        this.batchBytes = MAX_BATCH_BYTES;
+        this.appliedOffset = startOffset;
+        this.stopReason = null;
+        this.running = true;
+
+        followerThread = new Thread(this::followLoop, "employee-file-follower");
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    /**
+     * Stops the follower thread. Batches it already queued are kept,
+     * call applyPendingBatches to add them.
+     */
+    public void stop() {
+        if (followerThread == null) {
+            return;
+        }
+        running = false;
+        followerThread.interrupt();
+        try {
+            followerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        followerThread = null;
+    }
+
+    /**
+     * Drops the queued batches, for when the file is about to be read again.
+     */
+    public void clearPendingBatches() {
+        batches.clear();
+    }
+
+    public boolean isFollowing() {
+        return followerThread != null && running;
+    }
+
+    /**
+     * Offset in the data file up to which rows have been added to the lists.
+     */
+    public long getAppliedOffset() {
+        return appliedOffset;
+    }
+
+    /**
+     * Adds the queued batches to the lists. Must be called from the thread
+     * that owns the lists. New employees are classified and put in their
+     * departments like a load, then get a manager from their department.
+     *
+     * @return Number of employees added
+     */
+    public int applyPendingBatches() {
+        int departmentCount = departmentList.size();
+        ArrayList<Employee> newEmployees = new ArrayList<>();
+
+        EmployeeFileLoader.ChunkResult batch;
+        while ((batch = batches.poll()) != null) {
+            fileLoader.addRows(batch);
+            newEmployees.addAll(batch.employees);
+            appliedOffset = batch.nextRecordStart;
+        }
+
+        if (!newEmployees.isEmpty()) {
+            // a new department needs a head before anyone can report to it
+            if (departmentList.size() > departmentCount) {
+                managerCreator.createDepartmentHeads();
+            }
+            managerCreator.assignManagers(newEmployees);
+        }
+
+        if (stopReason != null) {
+            System.out.println("Stopped following the data file: " + stopReason);
+            stopReason = null;
+            stop();
+        }
+        return newEmployees.size();
+    }
+
+    // follower thread
+
+    private void followLoop() {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            Path folder = dataPath.toAbsolutePath().getParent();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            // pick up anything appended between the load and now
+            readNewRows();
+
+            while (running) {
+                WatchKey key = watcher.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    continue;
+                }
+
+                boolean fileChanged = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                            dataPath.getFileName().equals(event.context())) {
+                        fileChanged = true;
+                    }
+                }
+                key.reset();
+
+                if (fileChanged) {
+                    readNewRows();
+                }
+            }
+        } catch (InterruptedException e) {
+            // stop() was called
+        } catch (IOException e) {
+            if (running) {
+                stopReason = e.getMessage();
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Reads the complete rows after committedOffset and queues them in
+     * batches. A row still being written is left until the next change.
+     * A row bigger than a whole batch is read again with twice the bytes
+     * (like ExternalEmployeeSort's read buffer), up to MAX_ROW_BYTES.
+     */
+    private void readNewRows() throws IOException {
+        try (FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < committedOffset) {
+                stopReason = "the file got shorter, use Change Data File to load it again";
+                running = false;
+                return;
+            }
+
+            // read after the size, compaction lists its rows before writing them
+            List<long[]> compactedRanges = writeAheadLog != null ?
+                    writeAheadLog.getCompactedRanges() : new ArrayList<>();
+
+            while (running && committedOffset < fileSize) {
+                long before = committedOffset;
+                long end = skipCompactedRows(compactedRanges, fileSize);
+                if (committedOffset >= end) {
+                    if (committedOffset == before) {
+                        break; // compaction is still writing, wait for the next change
+                    }
+                    continue;
+                }
+
+                int length = (int) Math.min(end - committedOffset, batchBytes);
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, committedOffset + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+
+                buffer.flip();
+                EmployeeFileLoader.ChunkResult batch = EmployeeFileLoader.parseBytes(
+                        buffer, committedOffset, buffer.limit(), false, null);
+                if (batch.nextRecordStart == committedOffset) {
+                    if (length < batchBytes) {
+                        break; // only part of a row so far
+                    }
+                    if (batchBytes >= MAX_ROW_BYTES) {
+                        // most likely a quote that is never closed
+                        stopReason = "a row at offset " + committedOffset + " is not finished after " +
+                                (MAX_ROW_BYTES >> 20) + " MB, check the file for a missing quote";
+                        running = false;
+                        return;
+                    }
+                    // one row bigger than the whole batch
+                    batchBytes *= 2;
+                    continue;
+                }
+
+                committedOffset = batch.nextRecordStart;
+                batches.add(batch);
+            }
+        }
+    }
+
+    /**
+     * Moves committedOffset past a compacted range it is at, and returns
+     * where the next compacted range (or the file) starts.
+     * A range is listed before its rows are written, so one that ends past
+     * fileSize is only partly there: committedOffset stays where it is
+     * and is returned as the end, to try again once the rest is written.
+     */
+    private long skipCompactedRows(List<long[]> compactedRanges, long fileSize) {
+        long end = fileSize;
+        for (long[] range : compactedRanges) {
+            if (range[0] <= committedOffset && committedOffset < range[1]) {
+                if (range[1] > fileSize) {
+                    return committedOffset;
+                }
+                committedOffset = range[1];
+            } else if (range[0] > committedOffset) {
+                end = Math.min(end, range[0]);
+            }
+        }
+        return Math.min(end, fileSize);
+    }
+}
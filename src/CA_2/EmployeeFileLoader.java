@@ -0,0 +1,500 @@
+package CA_2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * EmployeeFileLoader reads the applicants file into the employee, manager
+ * and department lists.
+ *
+ * The file is memory-mapped and split into newline-aligned chunks. Each chunk
+ * is parsed on its own ForkJoinPool task with a CsvTokenizer, then the results
+ * are merged back in file order so the lists end up the same as with a
+ * line-by-line reader.
+ *
+ * Chunks end right after a newline, so a record normally ends with its
+ * chunk. A quoted field with a line break can run over the end: that record
+ * is left unfinished, and the merge parses the next chunk again from where
+ * the record starts, however long it is.
+ *
+ * Every employee keeps a hash of the row it came from, so a reload of the
+ * file can skip the rows that have not changed (see readChangedRows).
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeFileLoader {
+
+    // chunks smaller than this are not worth a separate task
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+
+    // each task maps its own chunk, keep them well under the 2 GB a mapping can hold
+    private static final long MAX_CHUNK_SIZE = 16L << 20;
+
+    private ArrayList<Employee> employeeList;
+    private ArrayList<Manager> managerList;
+    private ArrayList<Department> departmentList;
+    private ForkJoinPool pool;
+
+    // statistics from the last load
+    private int lastRowCount;
+    private long lastByteCount;
+    private long lastFileSize;
+    private long lastElapsedNanos;
+
+    public EmployeeFileLoader(ArrayList<Employee> employeeList,
+                              ArrayList<Manager> managerList,
+                              ArrayList<Department> departmentList) {
+        this.employeeList = employeeList;
+        this.managerList = managerList;
+        this.departmentList = departmentList;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Loads every record in the file and adds it to the lists.
+     * The first line is treated as the header and skipped.
+     *
+     * @param filename Path of the applicants file
+     * @return Number of employee records loaded
+     * @throws IOException if the file cannot be opened or read
+     */
+    public int loadFile(String filename) throws IOException {
+        return loadFile(filename, 0);
+    }
+
+    /**
+     * Loads the records from a given offset to the end of the file.
+     * Used to pick up rows appended after an earlier load; the offset must
+     * be the start of a record. The header is only skipped from offset 0.
+     *
+     * @param filename    Path of the applicants file
+     * @param startOffset Offset of the first record to load
+     * @return Number of employee records loaded
+     * @throws IOException if the file cannot be opened or read
+     */
+    public int loadFile(String filename, long startOffset) throws IOException {
+        HashMap<String, Department> departmentCache = new HashMap<>();
+        readChunks(filename, startOffset, null, result -> mergeChunk(result, departmentCache));
+        return lastRowCount;
+    }
+
+    /**
+     * Parses the records from a given offset without touching the lists.
+     * Each chunk is handed to the consumer in file order, on the calling
+     * thread, so this can run on a background thread while another thread
+     * adds the chunks with addRows. The load statistics are set at the end.
+     *
+     * @param filename    Path of the applicants file
+     * @param startOffset Offset of the first record to read
+     * @param consumer    Receives the parsed chunks in file order
+     * @throws IOException if the file cannot be opened or read
+     */
+    void readFile(String filename, long startOffset, Consumer<ChunkResult> consumer) throws IOException {
+        readChunks(filename, startOffset, null, consumer);
+    }
+
+    /**
+     * Reads the whole file again for a reload, without touching the lists.
+     * Rows whose hash can still be claimed from knownRows are unchanged and
+     * are only counted; every other row is parsed into an employee.
+     * After the call, whatever is left in knownRows was not found in the file.
+     *
+     * @param filename  Path of the applicants file
+     * @param knownRows Hashes of the rows that are already loaded
+     * @return The new and changed rows
+     * @throws IOException if the file cannot be opened or read
+     */
+    ChunkResult readChangedRows(String filename, RowHashTable knownRows) throws IOException {
+        ChunkResult changedRows = new ChunkResult();
+        ArrayList<Long> unclaimedOffsets = new ArrayList<>();
+
+        // chunk tasks only check the hashes, claiming happens here in file order
+        // so a chunk that gets parsed twice can't claim its rows twice
+        readChunks(filename, 0, knownRows, result -> {
+            changedRows.employees.addAll(result.employees);
+            changedRows.departmentNames.addAll(result.departmentNames);
+            for (int i = 0; i < result.knownRowCount; i++) {
+                if (!knownRows.claim(result.knownRowHashes[i])) {
+                    unclaimedOffsets.add(result.knownRowOffsets[i]);
+                }
+            }
+        });
+
+        // a known row that turned up more times than before, parse the extra copies
+        if (!unclaimedOffsets.isEmpty()) {
+            try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+                long fileSize = channel.size();
+                for (long offset : unclaimedOffsets) {
+                    ChunkResult row = parseRecordAt(channel, offset, fileSize);
+                    changedRows.employees.addAll(row.employees);
+                    changedRows.departmentNames.addAll(row.departmentNames);
+                }
+            }
+        }
+        return changedRows;
+    }
+
+    /**
+     * Adds parsed rows to the lists the same way a load does.
+     *
+     * @return Number of employees added
+     */
+    int addRows(ChunkResult rows) {
+        return mergeChunk(rows, new HashMap<>());
+    }
+
+    /**
+     * Parses the file from the start offset in parallel chunks and hands
+     * each chunk's result to the merger in file order.
+     */
+    private void readChunks(String filename, long startOffset, RowHashTable knownRows,
+                            Consumer<ChunkResult> merger) throws IOException {
+        long startTime = System.nanoTime();
+        int recordCount = 0;
+        long fileSize;
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            fileSize = channel.size();
+            long[] bounds = findChunkBounds(channel, startOffset, fileSize);
+
+            // start parsing every chunk at once, the pool decides how many run together
+            ArrayList<ParseChunkTask> tasks = new ArrayList<>();
+            for (int i = 0; i < bounds.length - 1; i++) {
+                ParseChunkTask task = createChunkTask(channel, bounds[i], bounds[i + 1], fileSize, knownRows);
+                tasks.add(task);
+                pool.execute(task);
+            }
+
+            // merge in file order while the later chunks are still parsing
+            long nextRecordStart = bounds[0];
+            for (int i = 0; i < tasks.size(); i++) {
+                ChunkResult result = tasks.get(i).join();
+                long chunkEnd = bounds[i + 1];
+
+                if (bounds[i] != nextRecordStart) {
+                    // the previous chunk left a record open (a quoted line break), so
+                    // this chunk began mid-record: parse it again from that record
+                    result = createChunkTask(channel, nextRecordStart, chunkEnd, fileSize, knownRows).invoke();
+                }
+
+                merger.accept(result);
+                recordCount += result.rowCount;
+                nextRecordStart = result.nextRecordStart;
+            }
+        }
+
+        lastRowCount = recordCount;
+        lastByteCount = Math.max(0, fileSize - startOffset);
+        lastFileSize = fileSize;
+        lastElapsedNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Number of valid rows the last load or reload read.
+     */
+    public int getLastRowCount() {
+        return lastRowCount;
+    }
+
+    /**
+     * Size of the file when the last load read it, i.e. the offset where
+     * rows appended later will start.
+     */
+    public long getLastFileSize() {
+        return lastFileSize;
+    }
+
+    /**
+     * Displays rows/sec and MB/sec for the last load.
+     */
+    public void displayLoadStatistics() {
+        double seconds = lastElapsedNanos / 1_000_000_000.0;
+        double megabytes = lastByteCount / (1024.0 * 1024.0);
+
+        System.out.println("Parsed " + lastRowCount + " rows (" +
+                String.format("%.2f", megabytes) + " MB) in " +
+                String.format("%.3f", seconds) + " s");
+        if (seconds > 0) {
+            System.out.println("Throughput: " + String.format("%.0f", lastRowCount / seconds) + " rows/sec, " +
+                    String.format("%.2f", megabytes / seconds) + " MB/sec");
+        }
+    }
+
+    /**
+     * Creates the right type of employee based on the position field.
+     * Principal, Deputy Principal and DepartmentHead rows become managers,
+     * everyone else is created as a Teacher.
+     * The salary is already in cents, so it is set directly instead of
+     * going through the constructors' double.
+     */
+    static Employee createEmployee(String firstName, String lastName, String gender, String email,
+                                   long salaryCents, String position, String jobTitle, String company) {
+        Employee employee;
+        if (position.equalsIgnoreCase("Principal")) {
+            employee = new Principal(firstName, lastName, gender, email,
+                    0, position, jobTitle, company);
+        } else if (position.equalsIgnoreCase("DeputyPrincipal") ||
+                position.equalsIgnoreCase("Deputy Principal")) {
+            employee = new VicePrincipal(firstName, lastName, gender, email,
+                    0, position, jobTitle, company);
+        } else if (position.equalsIgnoreCase("DepartmentHead")) {
+            employee = new DepartmentHead(firstName, lastName, gender, email,
+                    0, position, jobTitle, company);
+        } else {
+            // regular employee, create as Teacher
+            employee = new Teacher(firstName, lastName, gender, email,
+                    0, position, jobTitle, company);
+        }
+        employee.setSalaryCents(salaryCents);
+        return employee;
+    }
+
+    /**
+     * Splits the file from the start offset into chunks that each start
+     * right after a newline. Returns the chunk boundaries, first entry is the
+     * start offset and last is the file size.
+     */
+    private long[] findChunkBounds(FileChannel channel, long startOffset, long fileSize) throws IOException {
+        int parallelism = pool.getParallelism();
+        long length = Math.max(0, fileSize - startOffset);
+
+        long chunkCount = Math.min(length / MIN_CHUNK_SIZE, parallelism * 4L);
+        chunkCount = Math.max(chunkCount, (length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        chunkCount = Math.max(chunkCount, 1);
+
+        long[] bounds = new long[(int) chunkCount + 1];
+        bounds[0] = Math.min(startOffset, fileSize);
+        bounds[bounds.length - 1] = fileSize;
+
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            long target = Math.max(startOffset + length * i / chunkCount, bounds[i - 1]);
+            bounds[i] = findNextLineStart(channel, target, fileSize, probe);
+        }
+
+        return bounds;
+    }
+
+    /**
+     * Maps one chunk and creates the task that parses it. The chunk should
+     * end right after a newline; a record still open at its end is left
+     * unfinished (see ChunkResult.nextRecordStart).
+     */
+    private ParseChunkTask createChunkTask(FileChannel channel, long chunkStart, long chunkEnd,
+                                           long fileSize, RowHashTable knownRows) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd - chunkStart);
+        return new ParseChunkTask(buffer, chunkStart, (int) (chunkEnd - chunkStart), chunkEnd == fileSize,
+                knownRows);
+    }
+
+    /**
+     * Parses the one record that starts at the given offset. Maps up to the
+     * end of its line, and one more line at a time while a quoted field
+     * with a line break keeps it open.
+     */
+    private ChunkResult parseRecordAt(FileChannel channel, long offset, long fileSize) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long end = offset;
+        ChunkResult row;
+        do {
+            end = findNextLineStart(channel, end, fileSize, probe);
+            row = createChunkTask(channel, offset, end, fileSize, null).invoke();
+        } while (row.nextRecordStart == offset && end < fileSize);
+        return row;
+    }
+
+    /**
+     * Returns the position just after the first newline at or after the given position.
+     */
+    private long findNextLineStart(FileChannel channel, long position, long fileSize,
+                                   ByteBuffer probe) throws IOException {
+        while (position < fileSize) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Adds the parsed records of one chunk to the lists.
+     * Department lookups are cached by the exact name used in the file.
+     */
+    private int mergeChunk(ChunkResult result, HashMap<String, Department> departmentCache) {
+        for (int i = 0; i < result.employees.size(); i++) {
+            Employee employee = result.employees.get(i);
+            String departmentName = result.departmentNames.get(i);
+
+            if (employee instanceof Manager) {
+                managerList.add((Manager) employee);
+            }
+            employeeList.add(employee);
+
+            Department dept = departmentCache.get(departmentName);
+            if (dept == null) {
+                dept = Department.findOrCreate(departmentList, departmentName);
+                departmentCache.put(departmentName, dept);
+            }
+            employee.setDepartment(dept);
+            dept.addNewStaff(employee);
+        }
+        return result.employees.size();
+    }
+
+    /**
+     * Adds the current record of the tokenizer to the chunk result.
+     * Records with fewer than 9 fields are skipped. When knownRows is given,
+     * records with a known hash are only noted down, not parsed.
+     */
+    private static void parseRecord(CsvTokenizer tokenizer, long chunkStart, ChunkResult result,
+                                    RowHashTable knownRows) {
+        if (tokenizer.getFieldCount() < 9) {
+            return;
+        }
+        result.rowCount++;
+
+        long rowHash = tokenizer.hashRecord();
+        if (knownRows != null && knownRows.contains(rowHash)) {
+            result.addKnownRow(rowHash, chunkStart + tokenizer.getRecordStart());
+            return;
+        }
+
+        // only the kept columns become Strings, salary is read from the bytes as cents,
+        // and the columns that repeat on every row come back as shared Strings
+        String firstName = tokenizer.getString(0);
+        String lastName = tokenizer.getString(1);
+        String gender = tokenizer.getInternedString(2);
+        String email = tokenizer.getString(3);
+        long salaryCents = tokenizer.getCents(4);
+        String departmentName = tokenizer.getInternedString(5);
+        String position = tokenizer.getInternedString(6);
+        String jobTitle = tokenizer.getInternedString(7);
+        String company = tokenizer.getInternedString(8);
+
+        Employee employee = createEmployee(firstName, lastName, gender, email,
+                salaryCents, position, jobTitle, company);
+        employee.setSourceRowHash(rowHash);
+
+        result.employees.add(employee);
+        result.departmentNames.add(departmentName);
+    }
+
+    /**
+     * Parses the records that start in the first chunkLength bytes.
+     * Unless the bytes run to the end of the file, a record that is not
+     * finished by a line break is left for whoever reads the next bytes.
+     *
+     * @param bytes         File bytes from index 0 up to the buffer's limit, starting at chunkStart
+     * @param chunkStart    File offset of index 0
+     * @param chunkLength   Records starting at or after this index are left alone
+     * @param toEndOfFile   True if bytes end where the file ends
+     * @param knownRows     Hashes of rows to skip, or null to parse everything
+     */
+    static ChunkResult parseBytes(ByteBuffer bytes, long chunkStart, int chunkLength, boolean toEndOfFile,
+                                  RowHashTable knownRows) {
+        ChunkResult result = new ChunkResult();
+
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        tokenizer.reset(bytes, 0, chunkLength, bytes.limit());
+
+        // skip the header line (first record with column names)
+        boolean headerPending = chunkStart == 0;
+        int nextRecord = 0;
+
+        while (tokenizer.nextRecord()) {
+            // a record cut off by the end of the bytes belongs to the next chunk
+            if (!tokenizer.isRecordComplete() && !toEndOfFile) {
+                break;
+            }
+            nextRecord = tokenizer.getPosition();
+
+            if (headerPending) {
+                headerPending = false;
+                continue;
+            }
+            parseRecord(tokenizer, chunkStart, result, knownRows);
+        }
+
+        result.nextRecordStart = chunkStart + nextRecord;
+        return result;
+    }
+
+    /**
+     * Records parsed from one chunk, in file order.
+     * Department names are kept alongside because departments can only be
+     * created safely once the chunks are merged.
+     */
+    static class ChunkResult {
+        ArrayList<Employee> employees = new ArrayList<>();
+        ArrayList<String> departmentNames = new ArrayList<>();
+
+        // valid records read, including ones skipped as unchanged
+        int rowCount;
+
+        // hash and file offset of each record skipped because its hash was known
+        long[] knownRowHashes = new long[0];
+        long[] knownRowOffsets = new long[0];
+        int knownRowCount;
+
+        // file offset where the record after this chunk starts
+        long nextRecordStart;
+
+        void addKnownRow(long hash, long offset) {
+            if (knownRowCount == knownRowHashes.length) {
+                int newSize = Math.max(1024, knownRowCount * 2);
+                knownRowHashes = Arrays.copyOf(knownRowHashes, newSize);
+                knownRowOffsets = Arrays.copyOf(knownRowOffsets, newSize);
+            }
+            knownRowHashes[knownRowCount] = hash;
+            knownRowOffsets[knownRowCount] = offset;
+            knownRowCount++;
+        }
+    }
+
+    /**
+     * Parses the records that start inside one mapped chunk.
+     */
+    private static class ParseChunkTask extends RecursiveTask<ChunkResult> {
+        private static final long serialVersionUID = 1L;
+
+        private final MappedByteBuffer buffer;
+        private final long chunkStart;
+        private final int chunkLength;
+        private final boolean mappedToEndOfFile;
+        private final RowHashTable knownRows;
+
+        ParseChunkTask(MappedByteBuffer buffer, long chunkStart, int chunkLength, boolean mappedToEndOfFile,
+                       RowHashTable knownRows) {
+            this.buffer = buffer;
+            this.chunkStart = chunkStart;
+            this.chunkLength = chunkLength;
+            this.mappedToEndOfFile = mappedToEndOfFile;
+            this.knownRows = knownRows;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            // the tokenizer reads the mapping directly, nothing is copied to the heap
+            return parseBytes(buffer, chunkStart, chunkLength, mappedToEndOfFile, knownRows);
+        }
+    }
+}
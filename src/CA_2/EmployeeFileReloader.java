@@ -0,0 +1,259 @@
+package CA_2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * EmployeeFileReloader loads a new or updated data file on top of the
+ * employees already in memory, changing only what is different.
+ *
+ * Each employee loaded from a file remembers the hash of its row. The new
+ * file is read with those hashes: rows with a known hash are unchanged and
+ * are never turned into Strings or objects, which is where a full load
+ * spends most of its time. Only the remaining rows are parsed and then
+ * sorted into changes and additions by email:
+ * - changed: an old employee with the same email lost its row, so the
+ *   employee is updated in place and keeps its ID
+ * - added: no old employee matches, it is added like a normal load
+ * - removed: old employees whose rows are gone
+ * After that, department heads and managers are filled in for anyone who
+ * lost theirs, the same way as after a load.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeFileReloader {
+
+    private ArrayList<Employee> employeeList;
+    private ArrayList<Manager> managerList;
+    private ArrayList<Department> departmentList;
+    private EmployeeFileLoader fileLoader;
+    private ManagerCreator managerCreator;
+
+    // statistics from the last reload
+    private int lastUnchangedCount;
+    private int lastAddedCount;
+    private int lastChangedCount;
+    private int lastRemovedCount;
+    private long lastElapsedNanos;
+
+    public EmployeeFileReloader(ArrayList<Employee> employeeList,
+                                ArrayList<Manager> managerList,
+                                ArrayList<Department> departmentList,
+                                EmployeeFileLoader fileLoader,
+                                ManagerCreator managerCreator) {
+        this.employeeList = employeeList;
+        this.managerList = managerList;
+        this.departmentList = departmentList;
+        this.fileLoader = fileLoader;
+        this.managerCreator = managerCreator;
+    }
+
+    /**
+     * Brings the lists in line with a data file.
+     *
+     * Employees added in the program (menu, random generator or the
+     * employee log) are not in the file. When the same file is reloaded
+     * they are kept, and if log compaction has since written them into the
+     * file, the matching rows are linked to them instead of added twice.
+     * When switching to another file they belong to the old file's log, so
+     * they are removed.
+     *
+     * @param filename         Path of the applicants file
+     * @param keepAddedEmployees True to keep employees that were not loaded from a file
+     * @throws IOException if the file cannot be opened or read, the lists are unchanged then
+     */
+    public void reload(String filename, boolean keepAddedEmployees) throws IOException {
+        long startTime = System.nanoTime();
+
+        // hashes of every row currently loaded from a file
+        RowHashTable knownRows = new RowHashTable(employeeList.size());
+        for (Employee emp : employeeList) {
+            if (emp.getSourceRowHash() != 0) {
+                knownRows.add(emp.getSourceRowHash());
+            }
+        }
+
+        // read the file first, nothing below can fail half way
+        EmployeeFileLoader.ChunkResult changedRows = fileLoader.readChangedRows(filename, knownRows);
+        lastUnchangedCount = fileLoader.getLastRowCount() - changedRows.employees.size();
+
+        // employees whose row was not found again, by email so changed rows can find them
+        HashSet<Employee> removed = new HashSet<>();
+        HashMap<String, Employee> missingByEmail = new HashMap<>();
+        HashMap<String, Employee> addedByEmail = new HashMap<>();
+        for (Employee emp : employeeList) {
+            if (emp.getSourceRowHash() != 0) {
+                if (knownRows.claim(emp.getSourceRowHash())) {
+                    removed.add(emp);
+                    missingByEmail.putIfAbsent(emailKey(emp), emp);
+                }
+            } else if (!(emp instanceof Manager)) {
+                // managers without a row were created by ManagerCreator and are kept
+                if (keepAddedEmployees) {
+                    addedByEmail.putIfAbsent(emailKey(emp), emp);
+                } else {
+                    removed.add(emp);
+                }
+            }
+        }
+
+        EmployeeFileLoader.ChunkResult newRows = new EmployeeFileLoader.ChunkResult();
+        HashMap<Employee, Department> moved = new HashMap<>();
+        int departmentCount = departmentList.size();
+        lastChangedCount = 0;
+
+        for (int i = 0; i < changedRows.employees.size(); i++) {
+            Employee row = changedRows.employees.get(i);
+            String departmentName = changedRows.departmentNames.get(i);
+            String key = emailKey(row);
+
+            // a row written into the file by log compaction, link it to the employee we have
+            Employee added = addedByEmail.get(key);
+            if (added != null && hasSameDetails(added, row, departmentName)) {
+                added.setSourceRowHash(row.getSourceRowHash());
+                addedByEmail.remove(key);
+                lastUnchangedCount++;
+                continue;
+            }
+
+            // the same person with a different row, update them in place if they
+            // are still the same kind of employee. A manager's team depends on
+            // their department, so a manager who moved is removed and added again
+            Employee existing = missingByEmail.get(key);
+            if (existing != null && existing.getClass() == row.getClass()) {
+                Department oldDept = existing.getDepartment();
+                boolean sameDepartment = oldDept != null &&
+                        oldDept.getDepartmentName().equalsIgnoreCase(departmentName);
+
+                if (sameDepartment || !(existing instanceof Manager)) {
+                    missingByEmail.remove(key);
+                    removed.remove(existing);
+                    existing.copyDetailsFrom(row);
+                    if (!sameDepartment) {
+                        moved.put(existing, Department.findOrCreate(departmentList, departmentName));
+                    }
+                    lastChangedCount++;
+                    continue;
+                }
+            }
+
+            newRows.employees.add(row);
+            newRows.departmentNames.add(departmentName);
+        }
+
+        boolean managerRemoved = false;
+        for (Employee emp : removed) {
+            if (emp instanceof Manager) {
+                managerRemoved = true;
+                break;
+            }
+        }
+
+        ArrayList<Employee> needManager = new ArrayList<>();
+        lastRemovedCount = removeEmployees(removed, moved, needManager);
+        lastAddedCount = fileLoader.addRows(newRows);
+        needManager.addAll(newRows.employees);
+
+        // refill management positions only if one may be empty now, running
+        // createDepartmentHeads again would otherwise add heads it skipped on load
+        if (managerRemoved || departmentList.size() > departmentCount) {
+            managerCreator.ensureCoreManagementExists();
+            managerCreator.createDepartmentHeads();
+        }
+
+        // only the changed employees need to be looked at for managers
+        managerCreator.assignManagers(needManager);
+
+        lastElapsedNanos = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Displays what the last reload changed and how long it took.
+     */
+    public void displayReloadStatistics() {
+        System.out.println("Unchanged: " + lastUnchangedCount + " rows");
+        System.out.println("Added: " + lastAddedCount + ", changed: " + lastChangedCount +
+                ", removed: " + lastRemovedCount);
+        System.out.println("Reloaded in " + String.format("%.3f", lastElapsedNanos / 1_000_000_000.0) + " s");
+    }
+
+    /**
+     * Takes the removed employees out of the lists, their departments and
+     * their managers' teams, filtering each list once. Moved employees leave
+     * their old department and team the same way and join the new department.
+     * Moved employees and the team of any removed manager are added to
+     * needManager.
+     *
+     * @return Number of employees removed
+     */
+    private int removeEmployees(HashSet<Employee> removed, HashMap<Employee, Department> moved,
+                                ArrayList<Employee> needManager) {
+        if (removed.isEmpty() && moved.isEmpty()) {
+            return 0;
+        }
+
+        HashSet<Employee> leaving = new HashSet<>(removed);
+        leaving.addAll(moved.keySet());
+
+        HashSet<Department> touchedDepartments = new HashSet<>();
+        HashSet<Manager> touchedManagers = new HashSet<>();
+        for (Employee emp : leaving) {
+            if (emp.getDepartment() != null) {
+                touchedDepartments.add(emp.getDepartment());
+            }
+            if (emp.getManager() != null) {
+                touchedManagers.add(emp.getManager());
+            }
+        }
+
+        for (Department dept : touchedDepartments) {
+            dept.removeStaff(leaving);
+        }
+        for (Manager manager : touchedManagers) {
+            manager.removeEmployees(leaving);
+        }
+
+        for (Map.Entry<Employee, Department> move : moved.entrySet()) {
+            move.getKey().setManager(null);
+            move.getValue().addNewStaff(move.getKey());
+            needManager.add(move.getKey());
+        }
+
+        // anyone managed by a removed manager needs a new one
+        for (Employee emp : removed) {
+            if (emp instanceof Manager) {
+                for (Employee member : ((Manager) emp).managedEmployees) {
+                    if (member.getManager() == emp) {
+                        member.setManager(null);
+                        needManager.add(member);
+                    }
+                }
+            }
+        }
+
+        int before = employeeList.size();
+        employeeList.removeIf(removed::contains);
+        managerList.removeIf(removed::contains);
+        return before - employeeList.size();
+    }
+
+    private static String emailKey(Employee employee) {
+        return employee.getEmail() != null ? employee.getEmail().toLowerCase() : "";
+    }
+
+    private static boolean hasSameDetails(Employee employee, Employee row, String departmentName) {
+        return employee.firstName.equals(row.firstName) &&
+                employee.lastName.equals(row.lastName) &&
+                employee.gender.equals(row.gender) &&
+                employee.salaryCents == row.salaryCents &&
+                employee.position.equals(row.position) &&
+                employee.jobTitle.equals(row.jobTitle) &&
+                employee.company.equals(row.company) &&
+                employee.getDepartment() != null &&
+                employee.getDepartment().getDepartmentName().equalsIgnoreCase(departmentName);
+    }
+}
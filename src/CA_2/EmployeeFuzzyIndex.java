@@ -0,0 +1,382 @@
+package CA_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EmployeeFuzzyIndex finds employees whose name is close to the search
+ * term even with typos, so "Rosenburg" still finds Rosenberg and "Wilow"
+ * still finds Willow.
+ *
+ * How close is the edit distance (Levenshtein distance): how many chars
+ * have to be inserted, deleted or changed to turn one name into the
+ * other. The names are kept in a BK-tree: every first and last name is a
+ * node, and a node's children are stored by their distance to it. The
+ * edit distance obeys the triangle inequality, so when the term is d away
+ * from a node, a name within maxDistance of the term can only be under the
+ * children at distance d - maxDistance to d + maxDistance. The rest of the
+ * tree is skipped, which is what keeps this from being a full scan.
+ *
+ * - The whole term is matched against first and last names.
+ * - A term with a space is also split at the last space, "first last":
+ *   the last part is looked up in the tree, and the first names of those
+ *   employees are checked against the first part. The distance is the
+ *   two added up.
+ *
+ * Results are ranked by distance, then by name. Names only change on a
+ * reload, which rebuilds the tree. Like the other indexes it is only used
+ * from the menu thread, one search at a time.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeFuzzyIndex implements EmployeeIndex {
+
+    // most edits a search allows, past this almost every name matches
+    static final int MAX_DISTANCE = 3;
+
+    private Node root;
+    private int size;
+
+    // node of every name, so a name already in the tree isn't looked for again
+    private final HashMap<String, Node> nodes = new HashMap<>();
+
+    // rows of the edit distance table, reused by every editDistance call
+    private int[] previousRow = new int[32];
+    private int[] currentRow = new int[32];
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Employee employee) {
+        if (employee == null) {
+            return;
+        }
+        int number = size++;
+        String key = employee.getNameKey();
+        int separator = key.indexOf(EmployeeNameKey.SEPARATOR);
+        if (separator > 0) {
+            insert(key.substring(0, separator)).firstNameOf.add(employee, number);
+        }
+        if (separator + 1 < key.length()) {
+            insert(key.substring(separator + 1)).lastNameOf.add(employee, number);
+        }
+    }
+
+    @Override
+    public void rebuild(List<Employee> employees) {
+        root = null;
+        nodes.clear();
+        size = 0;
+        for (Employee employee : employees) {
+            add(employee);
+        }
+    }
+
+    /**
+     * Edit distance a search allows by default: 1 typo for short terms,
+     * 2 for longer ones.
+     */
+    public static int defaultMaxDistance(String searchName) {
+        return searchName.trim().length() <= 4 ? 1 : 2;
+    }
+
+    /**
+     * Employees whose first name, last name or full name is at most
+     * maxDistance edits away from the search term, ignoring case. Closest
+     * first; the same distance in name order.
+     *
+     * @param searchName  Name to search for, may have typos
+     * @param maxDistance Most edits allowed (0 to MAX_DISTANCE)
+     * @return Matching employees (empty if none found)
+     */
+    public Employee[] search(String searchName, int maxDistance) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Edit distance must be between 0 and " + MAX_DISTANCE);
+        }
+        if (searchName == null || searchName.trim().isEmpty() || root == null) {
+            return new Employee[0];
+        }
+        String searchTerm = searchName.trim().toLowerCase();
+
+        // closest match found for every employee
+        Map<Employee, Hit> hits = new IdentityHashMap<>();
+        // the whole term against first and last names ("wilow", or "mary an" for Mary Ann)
+        for (Match match : find(searchTerm, maxDistance)) {
+            EmployeeList firstNameOf = match.node.firstNameOf;
+            for (int i = 0; i < firstNameOf.count; i++) {
+                keepClosest(hits, firstNameOf.employees[i], firstNameOf.numbers[i], match.distance);
+            }
+            EmployeeList lastNameOf = match.node.lastNameOf;
+            for (int i = 0; i < lastNameOf.count; i++) {
+                keepClosest(hits, lastNameOf.employees[i], lastNameOf.numbers[i], match.distance);
+            }
+        }
+
+        // "first last": the last part against last names, then the first
+        // part against the first names of those employees
+        int space = searchTerm.lastIndexOf(' ');
+        if (space > 0) {
+            String firstPart = searchTerm.substring(0, space).trim();
+            String lastPart = searchTerm.substring(space + 1);
+            for (Match match : find(lastPart, maxDistance)) {
+                int allowed = maxDistance - match.distance;
+                EmployeeList lastNameOf = match.node.lastNameOf;
+                for (int i = 0; i < lastNameOf.count; i++) {
+                    Employee employee = lastNameOf.employees[i];
+                    int distance = editDistance(firstPart, firstNameOf(employee), allowed);
+                    if (distance <= allowed) {
+                        keepClosest(hits, employee, lastNameOf.numbers[i], match.distance + distance);
+                    }
+                }
+            }
+        }
+
+        // by distance, then by name, the same name in the order added
+        Hit[] ranked = hits.values().toArray(new Hit[0]);
+        Arrays.sort(ranked, (hit1, hit2) -> {
+            if (hit1.distance != hit2.distance) {
+                return Integer.compare(hit1.distance, hit2.distance);
+            }
+            int result = EmployeeNameKey.compare(hit1.employee, hit2.employee);
+            return result != 0 ? result : Integer.compare(hit1.number, hit2.number);
+        });
+        Employee[] results = new Employee[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            results[i] = ranked[i].employee;
+        }
+        return results;
+    }
+
+    /**
+     * Edit distance between an employee's name and a search term, worked
+     * out the same way search does, to show next to the results.
+     */
+    public int distanceOf(Employee employee, String searchName) {
+        String searchTerm = searchName.trim().toLowerCase();
+        String key = employee.getNameKey();
+        String firstName = firstNameOf(employee);
+        String lastName = key.substring(firstName.length() + 1);
+        int distance = Integer.MAX_VALUE;
+        if (!firstName.isEmpty()) {
+            distance = editDistance(searchTerm, firstName, Integer.MAX_VALUE);
+        }
+        if (!lastName.isEmpty()) {
+            distance = Math.min(distance, editDistance(searchTerm, lastName, Integer.MAX_VALUE));
+        }
+        int space = searchTerm.lastIndexOf(' ');
+        if (space > 0 && !lastName.isEmpty()) {
+            distance = Math.min(distance,
+                    editDistance(searchTerm.substring(0, space).trim(), firstName, Integer.MAX_VALUE) +
+                    editDistance(searchTerm.substring(space + 1), lastName, Integer.MAX_VALUE));
+        }
+        return distance;
+    }
+
+    private static String firstNameOf(Employee employee) {
+        String key = employee.getNameKey();
+        return key.substring(0, key.indexOf(EmployeeNameKey.SEPARATOR));
+    }
+
+    /**
+     * An employee that matched, how close, and when it was added.
+     */
+    private static class Hit {
+        final Employee employee;
+        final int number;
+        int distance;
+
+        Hit(Employee employee, int number, int distance) {
+            this.employee = employee;
+            this.number = number;
+            this.distance = distance;
+        }
+    }
+
+    private static void keepClosest(Map<Employee, Hit> hits, Employee employee, int number, int distance) {
+        Hit hit = hits.get(employee);
+        if (hit == null) {
+            hits.put(employee, new Hit(employee, number, distance));
+        } else if (distance < hit.distance) {
+            hit.distance = distance;
+        }
+    }
+
+    // BK-tree
+
+    private static class Node {
+        // most nodes have no children, they all share the same empty arrays
+        private static final int[] NO_DISTANCES = new int[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final String name;
+        final EmployeeList firstNameOf = new EmployeeList();
+        final EmployeeList lastNameOf = new EmployeeList();
+        int[] childDistances = NO_DISTANCES;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < childCount; i++) {
+                if (childDistances[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                childDistances = Arrays.copyOf(childDistances, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            childDistances[childCount] = distance;
+            children[childCount] = child;
+            childCount++;
+        }
+    }
+
+    private static class Match {
+        final Node node;
+        final int distance;
+
+        Match(Node node, int distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Node of a name, added to the tree if it isn't there yet.
+     */
+    private Node insert(String name) {
+        Node known = nodes.get(name);
+        if (known != null) {
+            return known;
+        }
+        if (root == null) {
+            root = new Node(name);
+            nodes.put(name, root);
+            return root;
+        }
+        Node node = root;
+        while (true) {
+            int distance = editDistance(name, node.name, Integer.MAX_VALUE);
+            if (distance == 0) {
+                return node;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                child = new Node(name);
+                node.addChild(distance, child);
+                nodes.put(name, child);
+                return child;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Every name in the tree at most maxDistance edits from the term.
+     */
+    private List<Match> find(String term, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        // a stack instead of recursion, the tree can be deep
+        Node[] stack = new Node[16];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            int distance = editDistance(term, node.name, Integer.MAX_VALUE);
+            if (distance <= maxDistance) {
+                matches.add(new Match(node, distance));
+            }
+            for (int i = 0; i < node.childCount; i++) {
+                if (Math.abs(node.childDistances[i] - distance) <= maxDistance) {
+                    if (top == stack.length) {
+                        stack = Arrays.copyOf(stack, top * 2);
+                    }
+                    stack[top++] = node.children[i];
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Levenshtein distance between two strings, worked out one row at a
+     * time. Stops early and returns limit + 1 once the distance is sure to
+     * be over the limit. The two rows are reused, so nothing is allocated.
+     */
+    private int editDistance(String a, String b, int limit) {
+        int lengthA = a.length();
+        int lengthB = b.length();
+        if (Math.abs(lengthA - lengthB) > limit) {
+            return limit + 1;
+        }
+
+        // previous[j] is the distance between the first i - 1 chars of a and the first j of b
+        if (previousRow.length <= lengthB) {
+            previousRow = new int[lengthB + 1];
+            currentRow = new int[lengthB + 1];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= lengthB; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= lengthA; i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= lengthB; j++) {
+                int change = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                int delete = previous[j] + 1;
+                int insert = current[j - 1] + 1;
+                current[j] = Math.min(change, Math.min(delete, insert));
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > limit) {
+                return limit + 1;   // the rows below can only get bigger
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[lengthB] > limit ? limit + 1 : previous[lengthB];
+    }
+
+    /**
+     * Growing array of the employees with one name, in the order added,
+     * with the number each one was added as.
+     */
+    private static class EmployeeList {
+        Employee[] employees;
+        int[] numbers;
+        int count;
+
+        void add(Employee employee, int number) {
+            if (employees == null) {
+                employees = new Employee[2];
+                numbers = new int[2];
+            } else if (count == employees.length) {
+                employees = Arrays.copyOf(employees, count * 2);
+                numbers = Arrays.copyOf(numbers, count * 2);
+            }
+            employees[count] = employee;
+            numbers[count] = number;
+            count++;
+        }
+    }
+}
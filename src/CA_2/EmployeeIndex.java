@@ -0,0 +1,27 @@
+package CA_2;
+
+import java.util.List;
+
+/**
+ * EmployeeIndex is implemented by structures that are built from the
+ * employee list and kept up to date by EmployeeIndexRegistry.
+ *
+ * Employees are almost always appended, so an index only has to handle
+ * add(). Anything else (a reload removing or changing employees) makes the
+ * registry rebuild the index from the list.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public interface EmployeeIndex {
+
+    /**
+     * Adds an employee that was appended to the employee list.
+     */
+    void add(Employee employee);
+
+    /**
+     * Throws away everything indexed so far and indexes the given employees.
+     */
+    void rebuild(List<Employee> employees);
+}
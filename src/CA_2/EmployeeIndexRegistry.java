@@ -0,0 +1,122 @@
+package CA_2;
+
+import java.util.ArrayList;
+
+/**
+ * EmployeeIndexRegistry keeps every EmployeeIndex in step with the employee list.
+ *
+ * Employees are added from many places (loading, the menu, the random
+ * generator, the employee log, the file follower), so instead of each of
+ * them telling every index, the registry remembers how many employees each
+ * index holds and hands it the new ones when the index is about to be used.
+ * An index nobody reads is never built. Changes that are not appends have
+ * to be reported with invalidate(), which makes every index rebuild on
+ * its next sync.
+ *
+ * The version number goes up whenever the employees change, so results
+ * worked out from an older version can be recognised as stale.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeIndexRegistry {
+
+    private ArrayList<Employee> employeeList;
+    private ArrayList<RegisteredIndex> indexes;
+
+    private long version;
+    private int lastSeenSize;
+    private long invalidations;
+
+    public EmployeeIndexRegistry(ArrayList<Employee> employeeList) {
+        this.employeeList = employeeList;
+        this.indexes = new ArrayList<>();
+    }
+
+    /**
+     * Adds an index. It is filled on its first sync.
+     */
+    public void register(EmployeeIndex index) {
+        indexes.add(new RegisteredIndex(index));
+    }
+
+    /**
+     * Brings one index up to date with the employee list.
+     * Cheap when nothing changed, so call it before every read.
+     */
+    public void sync(EmployeeIndex index) {
+        for (RegisteredIndex registered : indexes) {
+            if (registered.index == index) {
+                registered.sync();
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Index was not registered");
+    }
+
+    /**
+     * Brings all indexes up to date.
+     */
+    public void syncAll() {
+        for (RegisteredIndex registered : indexes) {
+            registered.sync();
+        }
+    }
+
+    /**
+     * Reports that employees were removed or changed, not just appended.
+     */
+    public void invalidate() {
+        for (RegisteredIndex registered : indexes) {
+            registered.rebuildNeeded = true;
+        }
+        version++;
+        invalidations++;
+        lastSeenSize = employeeList.size();
+    }
+
+    /**
+     * Goes up every time the employees change.
+     */
+    public long getVersion() {
+        if (employeeList.size() != lastSeenSize) {
+            lastSeenSize = employeeList.size();
+            version++;
+        }
+        return version;
+    }
+
+    /**
+     * How many times invalidate() was called. While it stays the same,
+     * employees have only been appended to the list.
+     */
+    public long getInvalidationCount() {
+        return invalidations;
+    }
+
+    /**
+     * An index and how much of the employee list it holds.
+     */
+    private class RegisteredIndex {
+        final EmployeeIndex index;
+        int indexedCount;
+        boolean rebuildNeeded = true;
+
+        RegisteredIndex(EmployeeIndex index) {
+            this.index = index;
+        }
+
+        void sync() {
+            int size = employeeList.size();
+            if (rebuildNeeded || size < indexedCount) {
+                index.rebuild(employeeList);
+                rebuildNeeded = false;
+            } else {
+                for (int i = indexedCount; i < size; i++) {
+                    index.add(employeeList.get(i));
+                }
+            }
+            indexedCount = size;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package CA_2;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * EmployeeNameIndex keeps the employees in name order all the time, so
+ * listing them sorted is a walk through the index instead of a sort.
+ *
+ * It is a B+tree: the employees sit in leaves of up to LEAF_SIZE, in
+ * order, with each leaf linked to the next one; the inner nodes above
+ * them only say which leaf a name belongs in. Adding an employee goes down
+ * the tree (O(log n)) and inserts into one small leaf, splitting it when
+ * full. Listing everyone follows the leaf links, O(n).
+ *
+ * The order is the same as mergeSort on the employee list: by name key
+ * (EmployeeNameKey), and employees with the same name in list order. For
+ * that every entry gets a sequence number in the order it was added, and
+ * employees are only ever added in list order (EmployeeIndexRegistry
+ * hands over the new ones at the end of the list).
+ *
+ * Names are part of the key, so a changed name needs a rebuild. The only
+ * place names change is a file reload, which invalidates the registry.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeNameIndex implements EmployeeIndex, Iterable<Employee> {
+
+    // most entries in a leaf and most children of an inner node
+    static final int LEAF_SIZE = 64;
+    static final int INNER_SIZE = 64;
+
+    // a rebuild fills leaves this far, leaving room for names added later
+    private static final int BULK_LEAF_FILL = LEAF_SIZE * 3 / 4;
+
+    private Node root;
+    private Leaf firstLeaf;
+    private int size;
+    private long nextSequence;
+
+    // randomly generated employees, so the sorted list can show how many there are
+    private int randomCount;
+
+    public EmployeeNameIndex() {
+        clear();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Number of randomly generated employees in the index.
+     */
+    public int getRandomCount() {
+        return randomCount;
+    }
+
+    /**
+     * Adds an employee after any others with the same name.
+     */
+    @Override
+    public void add(Employee employee) {
+        if (employee == null) {
+            return;
+        }
+        long sequence = nextSequence++;
+        Node split = root.insert(employee, sequence);
+        if (split != null) {
+            // the root was split: a new root above the two halves
+            Inner newRoot = new Inner();
+            newRoot.children[0] = root;
+            newRoot.children[1] = split;
+            newRoot.keys[0] = root.firstEmployee();
+            newRoot.keySequences[0] = root.firstSequence();
+            newRoot.keys[1] = split.firstEmployee();
+            newRoot.keySequences[1] = split.firstSequence();
+            newRoot.size = 2;
+            root = newRoot;
+        }
+        size++;
+        if (employee.isRandomlyGenerated()) {
+            randomCount++;
+        }
+    }
+
+    /**
+     * Builds the index from scratch: one sort of the list, then the leaves
+     * are filled in order and the inner nodes are built on top of them.
+     */
+    @Override
+    public void rebuild(List<Employee> employees) {
+        clear();
+
+        // the radix sort is stable, so employees with the same name stay in list
+        // order and their place in the sorted array works as their sequence
+        Employee[] sorted = employees.toArray(new Employee[0]);
+        NameRadixSort.sort(sorted);
+        int count = 0;
+        while (count < sorted.length && sorted[count] != null) {
+            if (sorted[count].isRandomlyGenerated()) {
+                randomCount++;
+            }
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+
+        // leaves, linked left to right
+        Node[] level = new Node[(count + BULK_LEAF_FILL - 1) / BULK_LEAF_FILL];
+        Leaf previous = null;
+        for (int i = 0; i < level.length; i++) {
+            Leaf leaf = new Leaf();
+            int from = i * BULK_LEAF_FILL;
+            int to = Math.min(count, from + BULK_LEAF_FILL);
+            for (int j = from; j < to; j++) {
+                leaf.employees[leaf.size] = sorted[j];
+                leaf.sequences[leaf.size] = j;
+                leaf.size++;
+            }
+            if (previous == null) {
+                firstLeaf = leaf;
+            } else {
+                previous.next = leaf;
+            }
+            previous = leaf;
+            level[i] = leaf;
+        }
+
+        // inner levels until one node is left
+        int innerFill = INNER_SIZE * 3 / 4;
+        while (level.length > 1) {
+            Node[] above = new Node[(level.length + innerFill - 1) / innerFill];
+            for (int i = 0; i < above.length; i++) {
+                Inner inner = new Inner();
+                int from = i * innerFill;
+                int to = Math.min(level.length, from + innerFill);
+                for (int j = from; j < to; j++) {
+                    inner.children[inner.size] = level[j];
+                    inner.keys[inner.size] = level[j].firstEmployee();
+                    inner.keySequences[inner.size] = level[j].firstSequence();
+                    inner.size++;
+                }
+                above[i] = inner;
+            }
+            level = above;
+        }
+
+        root = level[0];
+        size = count;
+        nextSequence = count;
+    }
+
+    /**
+     * The employees in name order.
+     */
+    @Override
+    public Iterator<Employee> iterator() {
+        return new Iterator<Employee>() {
+            private Leaf leaf = firstLeaf;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (leaf != null && index >= leaf.size) {
+                    leaf = leaf.next;
+                    index = 0;
+                }
+                return leaf != null;
+            }
+
+            @Override
+            public Employee next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return leaf.employees[index++];
+            }
+        };
+    }
+
+    /**
+     * The employees in name order, the same array mergeSort would return.
+     */
+    public Employee[] toArray() {
+        Employee[] array = new Employee[size];
+        int count = 0;
+        for (Leaf leaf = firstLeaf; leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.employees, 0, array, count, leaf.size);
+            count += leaf.size;
+        }
+        return array;
+    }
+
+    /**
+     * The first employees in name order, at most count of them.
+     */
+    public Employee[] first(int count) {
+        Employee[] array = new Employee[Math.max(0, Math.min(count, size))];
+        int filled = 0;
+        for (Leaf leaf = firstLeaf; leaf != null && filled < array.length; leaf = leaf.next) {
+            int take = Math.min(leaf.size, array.length - filled);
+            System.arraycopy(leaf.employees, 0, array, filled, take);
+            filled += take;
+        }
+        return array;
+    }
+
+    /**
+     * Employees whose full name "first last" is exactly the given name,
+     * ignoring case, in name order. Goes down the tree once for every way
+     * the name can be split into a first and a last name (at each space),
+     * so it is O(log n) plus the employees found instead of a full scan.
+     *
+     * @param fullName Full name to look for
+     * @return Employees with that name (empty if none, or if it has no space)
+     */
+    public Employee[] findByFullName(String fullName) {
+        if (fullName == null) {
+            return new Employee[0];
+        }
+        String name = fullName.trim().toLowerCase();
+
+        Employee[] found = new Employee[4];
+        int count = 0;
+        for (int space = name.indexOf(' '); space >= 0; space = name.indexOf(' ', space + 1)) {
+            String key = name.substring(0, space) + EmployeeNameKey.SEPARATOR + name.substring(space + 1);
+
+            // first entry not before the key, then every entry with the same key
+            Leaf leaf = leafFor(key);
+            int index = 0;
+            while (index < leaf.size && leaf.employees[index].getNameKey().compareTo(key) < 0) {
+                index++;
+            }
+            while (leaf != null) {
+                if (index == leaf.size) {
+                    leaf = leaf.next;
+                    index = 0;
+                    continue;
+                }
+                Employee employee = leaf.employees[index++];
+                if (!employee.getNameKey().equals(key)) {
+                    break;
+                }
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = employee;
+            }
+        }
+        // splitting further right only gives bigger keys ("ann\0marie x" <
+        // "ann marie\0x"), so the groups are already in name order
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Leaf where the first entry with the key (or the first one after it)
+     * is, or the leaf before it.
+     */
+    private Leaf leafFor(String key) {
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            // last child that starts before the key; equal names can go on
+            // from the child before, so a child starting with the key is not taken
+            int low = 1;
+            int high = inner.size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (inner.keys[middle].getNameKey().compareTo(key) >= 0) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            node = inner.children[low - 1];
+        }
+        return (Leaf) node;
+    }
+
+    private void clear() {
+        firstLeaf = new Leaf();
+        root = firstLeaf;
+        size = 0;
+        nextSequence = 0;
+        randomCount = 0;
+    }
+
+    /**
+     * Order of the entries: name key, then sequence.
+     */
+    private static int compare(Employee employee1, long sequence1, Employee employee2, long sequence2) {
+        int result = EmployeeNameKey.compare(employee1, employee2);
+        return result != 0 ? result : Long.compare(sequence1, sequence2);
+    }
+
+    // tree nodes
+
+    private abstract static class Node {
+        int size;
+
+        /**
+         * Inserts an entry below this node.
+         *
+         * @return The new right half if this node had to be split, otherwise null
+         */
+        abstract Node insert(Employee employee, long sequence);
+
+        abstract Employee firstEmployee();
+
+        abstract long firstSequence();
+    }
+
+    private static class Leaf extends Node {
+        final Employee[] employees = new Employee[LEAF_SIZE];
+        final long[] sequences = new long[LEAF_SIZE];
+        Leaf next;
+
+        @Override
+        Node insert(Employee employee, long sequence) {
+            // first entry that comes after the new one
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(employees[middle], sequences[middle], employee, sequence) > 0) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+
+            if (size < LEAF_SIZE) {
+                insertAt(low, employee, sequence);
+                return null;
+            }
+
+            // full: move the top half to a new leaf, then insert into the right one
+            Leaf right = new Leaf();
+            int half = LEAF_SIZE / 2;
+            System.arraycopy(employees, half, right.employees, 0, LEAF_SIZE - half);
+            System.arraycopy(sequences, half, right.sequences, 0, LEAF_SIZE - half);
+            Arrays.fill(employees, half, LEAF_SIZE, null);
+            right.size = LEAF_SIZE - half;
+            size = half;
+            right.next = next;
+            next = right;
+
+            if (low <= half) {
+                insertAt(low, employee, sequence);
+            } else {
+                right.insertAt(low - half, employee, sequence);
+            }
+            return right;
+        }
+
+        private void insertAt(int index, Employee employee, long sequence) {
+            System.arraycopy(employees, index, employees, index + 1, size - index);
+            System.arraycopy(sequences, index, sequences, index + 1, size - index);
+            employees[index] = employee;
+            sequences[index] = sequence;
+            size++;
+        }
+
+        @Override
+        Employee firstEmployee() { return employees[0]; }
+
+        @Override
+        long firstSequence() { return sequences[0]; }
+    }
+
+    /**
+     * keys[i] is the first entry under children[i]; keys[0] is not used
+     * for searching, everything smaller than keys[1] goes to children[0].
+     */
+    private static class Inner extends Node {
+        final Node[] children = new Node[INNER_SIZE];
+        final Employee[] keys = new Employee[INNER_SIZE];
+        final long[] keySequences = new long[INNER_SIZE];
+
+        @Override
+        Node insert(Employee employee, long sequence) {
+            // last child whose first entry is not after the new one
+            int low = 1;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(keys[middle], keySequences[middle], employee, sequence) > 0) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            int child = low - 1;
+
+            Node split = children[child].insert(employee, sequence);
+            // the new entry may be the first one of the leftmost child
+            keys[child] = children[child].firstEmployee();
+            keySequences[child] = children[child].firstSequence();
+            if (split == null) {
+                return null;
+            }
+
+            if (size < INNER_SIZE) {
+                insertAt(child + 1, split);
+                return null;
+            }
+
+            Inner right = new Inner();
+            int half = INNER_SIZE / 2;
+            System.arraycopy(children, half, right.children, 0, INNER_SIZE - half);
+            System.arraycopy(keys, half, right.keys, 0, INNER_SIZE - half);
+            System.arraycopy(keySequences, half, right.keySequences, 0, INNER_SIZE - half);
+            Arrays.fill(children, half, INNER_SIZE, null);
+            Arrays.fill(keys, half, INNER_SIZE, null);
+            right.size = INNER_SIZE - half;
+            size = half;
+
+            if (child + 1 <= half) {
+                insertAt(child + 1, split);
+            } else {
+                right.insertAt(child + 1 - half, split);
+            }
+            return right;
+        }
+
+        private void insertAt(int index, Node child) {
+            System.arraycopy(children, index, children, index + 1, size - index);
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(keySequences, index, keySequences, index + 1, size - index);
+            children[index] = child;
+            keys[index] = child.firstEmployee();
+            keySequences[index] = child.firstSequence();
+            size++;
+        }
+
+        @Override
+        Employee firstEmployee() { return keys[0]; }
+
+        @Override
+        long firstSequence() { return keySequences[0]; }
+    }
+}
@@ -0,0 +1,108 @@
+package CA_2;
+
+/**
+ * EmployeeNameKey builds the key employees are sorted and searched by,
+ * so the names are lowercased once per employee instead of on every
+ * comparison.
+ *
+ * The key is the lowercase first name, a '\0' and the lowercase last
+ * name: "buffy\0summers". '\0' is smaller than any character in a name,
+ * so comparing two keys with compareTo gives exactly the old order
+ * (first name, then last name, ignoring case) with one String compare.
+ *
+ * The first 4 characters of the key are also packed into a long (16 bits
+ * each, padded with 0). The prefix is kept on the Employee itself, so most
+ * comparisons are decided by comparing two longs without even reading
+ * the key String; only equal prefixes go on to compare the keys.
+ *
+ * Employee builds its key the first time it is needed and drops it when
+ * the name changes.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class EmployeeNameKey {
+
+    // between the first and the last name in a key
+    static final char SEPARATOR = '\0';
+
+    // characters packed into the prefix
+    private static final int PREFIX_CHARS = 4;
+
+    private EmployeeNameKey() {
+        // only static methods
+    }
+
+    /**
+     * Builds the key for a name. Null names count as empty.
+     */
+    public static String of(String firstName, String lastName) {
+        String first = firstName != null ? firstName.toLowerCase() : "";
+        String last = lastName != null ? lastName.toLowerCase() : "";
+        return new StringBuilder(first.length() + 1 + last.length())
+                .append(first).append(SEPARATOR).append(last).toString();
+    }
+
+    /**
+     * Packs the first 4 characters of a key into a long, the first one in
+     * the top 16 bits. Compared unsigned, prefixes are in the same order as
+     * their keys, and different prefixes always mean different keys.
+     */
+    public static long prefixOf(String key) {
+        long prefix = 0;
+        int length = Math.min(PREFIX_CHARS, key.length());
+        for (int i = 0; i < PREFIX_CHARS; i++) {
+            prefix <<= 16;
+            if (i < length) {
+                prefix |= key.charAt(i);
+            }
+        }
+        return prefix;
+    }
+
+    /**
+     * Compares two employees by name (first name, then last name, ignoring
+     * case). Builds their keys if they don't have one yet.
+     */
+    public static int compare(Employee emp1, Employee emp2) {
+        // getNameKey also makes sure the prefix is set
+        String key1 = emp1.getNameKey();
+        String key2 = emp2.getNameKey();
+
+        if (emp1.nameKeyPrefix != emp2.nameKeyPrefix) {
+            return Long.compareUnsigned(emp1.nameKeyPrefix, emp2.nameKeyPrefix);
+        }
+        return key1.compareTo(key2);
+    }
+
+    /**
+     * Checks if a lowercase, trimmed search term is in the first name, the
+     * last name or the full name "first last" of a key. Works on the key
+     * directly, without building any String.
+     */
+    public static boolean matches(String key, String searchTerm) {
+        int separator = key.indexOf(SEPARATOR);
+        int termLength = searchTerm.length();
+
+        // inside the first name or inside the last name
+        int from = 0;
+        int found;
+        while ((found = key.indexOf(searchTerm, from)) >= 0) {
+            if (found + termLength <= separator || found > separator) {
+                return true;
+            }
+            from = found + 1;
+        }
+
+        // across the space of the full name: the part before a space in the
+        // term ends the first name and the part after it starts the last name.
+        // The term is trimmed, so the space is never its first or last character.
+        for (int space = searchTerm.indexOf(' '); space >= 0; space = searchTerm.indexOf(' ', space + 1)) {
+            if (key.regionMatches(separator - space, searchTerm, 0, space) &&
+                key.regionMatches(separator + 1, searchTerm, space + 1, termLength - space - 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
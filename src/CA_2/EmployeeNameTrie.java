@@ -0,0 +1,304 @@
+package CA_2;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EmployeeNameTrie finds the employees whose name starts with what has
+ * been typed so far, for type-ahead lookups.
+ *
+ * It is a radix trie (a trie where a chain of nodes with one child each
+ * is squashed into one node with a longer label) over the lowercase
+ * names. Every employee goes in twice: under the full name "first last",
+ * which also covers the first name, and under the last name. A prefix
+ * search walks down the prefix, O(prefix length), and then reads the
+ * employees under that node, O(results), so with a limit it doesn't
+ * matter how many employees there are.
+ *
+ * Order of the results: first the ones whose first or full name starts
+ * with the prefix, in full name order, then the ones where only the last
+ * name does, in last name order. Employees with the same name come in
+ * the order they were added.
+ *
+ * Names only change on a reload, which rebuilds the trie.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeNameTrie implements EmployeeIndex {
+
+    private final Node fullNames = new Node("", 0, 0);
+    private final Node lastNames = new Node("", 0, 0);
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void add(Employee employee) {
+        if (employee == null) {
+            return;
+        }
+        // both go in straight from the name key, without building new Strings
+        String key = employee.getNameKey();
+        int separator = key.indexOf(EmployeeNameKey.SEPARATOR);
+        insert(fullNames, key, 0, employee);
+        if (separator + 1 < key.length()) {
+            insert(lastNames, key, separator + 1, employee);
+        }
+        size++;
+    }
+
+    @Override
+    public void rebuild(List<Employee> employees) {
+        clear(fullNames);
+        clear(lastNames);
+        size = 0;
+        for (Employee employee : employees) {
+            add(employee);
+        }
+    }
+
+    /**
+     * All employees whose first name, last name or full name starts with
+     * the prefix, ignoring case.
+     *
+     * @param prefix Start of the name
+     * @return Matching employees (empty if none found)
+     */
+    public Employee[] searchPrefix(String prefix) {
+        return searchPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The first employees whose first name, last name or full name starts
+     * with the prefix, ignoring case, at most limit of them.
+     *
+     * @param prefix Start of the name
+     * @param limit  Most employees to return
+     * @return Matching employees (empty if none found)
+     */
+    public Employee[] searchPrefix(String prefix, int limit) {
+        if (prefix == null || prefix.trim().isEmpty() || limit <= 0) {
+            return new Employee[0];
+        }
+        String searchTerm = prefix.trim().toLowerCase();
+
+        Results results = new Results(limit);
+        Node node = find(fullNames, searchTerm);
+        if (node != null) {
+            collect(node, results, null);
+        }
+        node = find(lastNames, searchTerm);
+        if (node != null && !results.isFull()) {
+            // skip the ones the full name already found
+            collect(node, results, searchTerm);
+        }
+        return results.toArray();
+    }
+
+    // trie
+
+    /**
+     * A node stands for the labels on the way down to it. Children are
+     * kept sorted by the first char of their label, which is different
+     * for every child. The label is not a String of its own but a part of
+     * the name key it was first added for, text[labelStart..labelEnd), so
+     * the trie doesn't hold a copy of every name.
+     */
+    private static class Node {
+        // most nodes are leaves, they all share the same empty arrays
+        private static final char[] NO_CHARS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        String text;
+        int labelStart;
+        int labelEnd;
+        char[] childChars = NO_CHARS;
+        Node[] children = NO_CHILDREN;
+        int childCount;
+        Employee[] employees;   // the ones whose name ends here, in the order added
+        int employeeCount;
+
+        Node(String text, int labelStart, int labelEnd) {
+            this.text = text;
+            this.labelStart = labelStart;
+            this.labelEnd = labelEnd;
+        }
+
+        int labelLength() {
+            return labelEnd - labelStart;
+        }
+
+        char labelChar(int index) {
+            return charAt(text, labelStart + index);
+        }
+
+        int childIndex(char c) {
+            return Arrays.binarySearch(childChars, 0, childCount, c);
+        }
+
+        void addChild(int index, Node child) {
+            if (childCount == children.length) {
+                int capacity = Math.max(2, childCount * 2);
+                childChars = Arrays.copyOf(childChars, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(childChars, index, childChars, index + 1, childCount - index);
+            System.arraycopy(children, index, children, index + 1, childCount - index);
+            childChars[index] = child.labelChar(0);
+            children[index] = child;
+            childCount++;
+        }
+
+        void addEmployee(Employee employee) {
+            if (employees == null) {
+                employees = new Employee[1];
+            } else if (employeeCount == employees.length) {
+                employees = Arrays.copyOf(employees, employeeCount * 2);
+            }
+            employees[employeeCount++] = employee;
+        }
+    }
+
+    /**
+     * Adds an employee under the name key from start on, with the
+     * separator read as a space.
+     */
+    private static void insert(Node root, String key, int start, Employee employee) {
+        Node node = root;
+        int position = start;
+        while (position < key.length()) {
+            int index = node.childIndex(charAt(key, position));
+            if (index < 0) {
+                // nothing starts with this char yet: one new leaf for the rest
+                Node leaf = new Node(key, position, key.length());
+                node.addChild(-index - 1, leaf);
+                node = leaf;
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonLength(child, key, position);
+            if (common < child.labelLength()) {
+                // the name leaves the label part way: split the label there
+                Node middle = new Node(child.text, child.labelStart, child.labelStart + common);
+                child.labelStart += common;
+                middle.addChild(0, child);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            position += common;
+        }
+        node.addEmployee(employee);
+    }
+
+    /**
+     * Node under which every name starts with the prefix, or null if no
+     * name does.
+     */
+    private static Node find(Node root, String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = commonLength(node, prefix, position);
+            if (common < node.labelLength() && position + common < prefix.length()) {
+                return null;    // the prefix leaves the label part way
+            }
+            position += common;
+        }
+        return node;
+    }
+
+    /**
+     * Length of the common start of the node's label and name from position.
+     */
+    private static int commonLength(Node node, String name, int position) {
+        int limit = Math.min(node.labelLength(), name.length() - position);
+        int i = 0;
+        while (i < limit && node.labelChar(i) == charAt(name, position + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Char of a name key, with the separator read as the space of the full name.
+     */
+    private static char charAt(String key, int index) {
+        char c = key.charAt(index);
+        return c == EmployeeNameKey.SEPARATOR ? ' ' : c;
+    }
+
+    /**
+     * Adds the employees under a node in name order until results is full.
+     * If fullNamePrefix is set, employees whose full name starts with it
+     * are skipped, they are already in the results.
+     */
+    private static void collect(Node node, Results results, String fullNamePrefix) {
+        for (int i = 0; i < node.employeeCount && !results.isFull(); i++) {
+            Employee employee = node.employees[i];
+            if (fullNamePrefix == null || !fullNameStartsWith(employee.getNameKey(), fullNamePrefix)) {
+                results.add(employee);
+            }
+        }
+        for (int i = 0; i < node.childCount && !results.isFull(); i++) {
+            collect(node.children[i], results, fullNamePrefix);
+        }
+    }
+
+    private static boolean fullNameStartsWith(String key, String prefix) {
+        if (prefix.length() > key.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (charAt(key, i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void clear(Node root) {
+        root.childChars = Node.NO_CHARS;
+        root.children = Node.NO_CHILDREN;
+        root.childCount = 0;
+        root.employees = null;
+        root.employeeCount = 0;
+    }
+
+    /**
+     * Growing array of results that stops at the limit.
+     */
+    private static class Results {
+        private final int limit;
+        private Employee[] employees = new Employee[16];
+        private int count;
+
+        Results(int limit) {
+            this.limit = limit;
+        }
+
+        boolean isFull() {
+            return count >= limit;
+        }
+
+        void add(Employee employee) {
+            if (count == employees.length) {
+                employees = Arrays.copyOf(employees, (int) Math.min((long) count * 2, Integer.MAX_VALUE - 8));
+            }
+            employees[count++] = employee;
+        }
+
+        Employee[] toArray() {
+            return Arrays.copyOf(employees, count);
+        }
+    }
+}
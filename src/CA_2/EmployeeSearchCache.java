@@ -0,0 +1,234 @@
+package CA_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * EmployeeSearchCache remembers the results of the last name searches, so
+ * looking up the same names over and over doesn't search again every time.
+ *
+ * Results are kept by the lowercase, trimmed search term in a
+ * LinkedHashMap in access order, so the least recently used term is the
+ * first one and is dropped when the cache is full: when there are more
+ * than maxEntries terms, or more than maxEmployees employees in all the
+ * kept results together (a search for "a" can match most of the staff).
+ *
+ * Nothing is cleared when the employees change. Every result remembers
+ * the registry version and list size it was worked out for:
+ * - same version: the result is still right (a hit)
+ * - employees were only added since (no invalidate, the list grew): only
+ *   the new employees are checked and the matches are added (an update)
+ * - anything else, e.g. a reload: the term is searched again (a miss)
+ * so only the results that are used again are ever redone.
+ *
+ * The results are the same as the substring search in SearchAlgorithms,
+ * in name order. Like the indexes it is only used from the menu thread.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeSearchCache {
+
+    private final ArrayList<Employee> employeeList;
+    private final EmployeeIndexRegistry employeeIndexes;
+    private final EmployeeTrigramIndex trigramIndex;
+    private final EmployeeColumnStore columnStore;
+    private final int maxEntries;
+    private final int maxEmployees;
+
+    // least recently used first
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedEmployees;
+
+    private long hits;
+    private long updates;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param employeeList    The employee list the indexes are kept in step with
+     * @param employeeIndexes Registry both indexes are registered with
+     * @param trigramIndex    Index for terms of 3 or more characters
+     * @param columnStore     Packed names scanned for shorter terms
+     * @param maxEntries      Most search terms to keep
+     * @param maxEmployees    Most employees in all kept results together
+     */
+    public EmployeeSearchCache(ArrayList<Employee> employeeList, EmployeeIndexRegistry employeeIndexes,
+                               EmployeeTrigramIndex trigramIndex, EmployeeColumnStore columnStore,
+                               int maxEntries, int maxEmployees) {
+        if (maxEntries < 1 || maxEmployees < 1) {
+            throw new IllegalArgumentException("Cache sizes must be at least 1");
+        }
+        this.employeeList = employeeList;
+        this.employeeIndexes = employeeIndexes;
+        this.trigramIndex = trigramIndex;
+        this.columnStore = columnStore;
+        this.maxEntries = maxEntries;
+        this.maxEmployees = maxEmployees;
+    }
+
+    /**
+     * Employees whose first name, last name or full name contains the
+     * search term, ignoring case, in name order. From the cache if the
+     * term was searched before.
+     *
+     * @param searchName Name or partial name to search for
+     * @return Matching employees (empty if none found); don't change the array
+     */
+    public Employee[] search(String searchName) {
+        if (searchName == null || searchName.trim().isEmpty()) {
+            return new Employee[0];
+        }
+        String searchTerm = searchName.trim().toLowerCase();
+        long version = employeeIndexes.getVersion();
+        int size = employeeList.size();
+
+        Entry entry = entries.get(searchTerm);
+        if (entry != null) {
+            if (entry.version == version) {
+                hits++;
+                return entry.results;
+            }
+            if (entry.invalidations == employeeIndexes.getInvalidationCount() && entry.listSize <= size) {
+                updates++;
+                update(entry, searchTerm, version, size);
+                return entry.results;
+            }
+            remove(searchTerm);
+        }
+
+        misses++;
+        Employee[] results = searchIndexes(searchTerm);
+        if (results.length <= maxEmployees) {
+            put(searchTerm, new Entry(results, version, employeeIndexes.getInvalidationCount(), size));
+        }
+        return results;
+    }
+
+    /**
+     * Searches answered straight from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Searches answered from the cache after checking the employees added since.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Searches that had to use the indexes.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Terms dropped to keep the cache within its limits.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Number of search terms kept.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Number of employees in all the kept results together.
+     */
+    public long getCachedEmployees() {
+        return cachedEmployees;
+    }
+
+    /**
+     * The search itself, the same way the menu searches without the cache.
+     */
+    private Employee[] searchIndexes(String searchTerm) {
+        Employee[] results;
+        if (searchTerm.length() < 3) {
+            employeeIndexes.sync(columnStore);
+            results = SearchAlgorithms.linearSearch(columnStore, searchTerm);
+        } else {
+            employeeIndexes.sync(trigramIndex);
+            results = trigramIndex.search(searchTerm);
+        }
+        // stable, so employees with the same name stay in list order
+        NameRadixSort.sort(results);
+        return results;
+    }
+
+    /**
+     * Adds the matches among the employees added since the entry was made.
+     * They come after the old ones in the list, so after the stable sort
+     * the result is the same as searching everything again.
+     */
+    private void update(Entry entry, String searchTerm, long version, int size) {
+        Employee[] added = SearchAlgorithms.scan(
+                employeeList.subList(entry.listSize, size).toArray(new Employee[0]), 0, size - entry.listSize, searchTerm);
+        if (added.length > 0) {
+            Employee[] results = Arrays.copyOf(entry.results, entry.results.length + added.length);
+            System.arraycopy(added, 0, results, entry.results.length, added.length);
+            NameRadixSort.sort(results);
+            cachedEmployees += added.length;
+            entry.results = results;
+        }
+        entry.version = version;
+        entry.listSize = size;
+        evictIfFull();
+    }
+
+    private void put(String searchTerm, Entry entry) {
+        entries.put(searchTerm, entry);
+        cachedEmployees += entry.results.length;
+        evictIfFull();
+    }
+
+    private void remove(String searchTerm) {
+        Entry entry = entries.remove(searchTerm);
+        if (entry != null) {
+            cachedEmployees -= entry.results.length;
+        }
+    }
+
+    /**
+     * Drops the least recently used terms until both limits are kept.
+     * The term just used is the last one, so it goes only if it is too big
+     * on its own.
+     */
+    private void evictIfFull() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || cachedEmployees > maxEmployees) && iterator.hasNext()) {
+            Entry eldest = iterator.next().getValue();
+            iterator.remove();
+            cachedEmployees -= eldest.results.length;
+            evictions++;
+        }
+    }
+
+    /**
+     * A cached result and what the employees looked like when it was made.
+     */
+    private static class Entry {
+        Employee[] results;
+        long version;
+        final long invalidations;
+        int listSize;
+
+        Entry(Employee[] results, long version, long invalidations, int listSize) {
+            this.results = results;
+            this.version = version;
+            this.invalidations = invalidations;
+            this.listSize = listSize;
+        }
+    }
+}
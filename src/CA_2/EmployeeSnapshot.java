@@ -0,0 +1,454 @@
+package CA_2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * EmployeeSnapshot saves the fully resolved employee graph to a binary file
+ * next to the data file, so the next start can skip parsing the file and
+ * working out the managers again.
+ *
+ * The snapshot holds employees, departments, the manager list, each
+ * manager's team and each department's staff, all as indexes into one
+ * string table. It records the size and CRC32 of the data file it was built
+ * from and is only used while those bytes are unchanged. Rows appended to
+ * the data file afterwards don't invalidate it, the caller loads them on top.
+ *
+ * Layout (big-endian):
+ * header: magic, version, source size, source CRC32
+ * strings: count, then length + UTF-8 bytes for each
+ * departments: count, then id, name, type, head for each
+ * employees: count, then kind, manager type, ids, fields, department and manager for each
+ * manager list: count, then employee indexes
+ * department staff: for each department, count + employee indexes
+ * manager teams: for each manager employee, count + employee indexes
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeSnapshot {
+
+    private static final int MAGIC = 0x534D5353; // "SMSS"
+    private static final int VERSION = 3;
+
+    // snapshot is read through mapped windows of this size
+    private static final int WINDOW_SIZE = 64 << 20;
+
+    // employee kinds stored in the snapshot
+    private static final byte KIND_EMPLOYEE = 0;
+    private static final byte KIND_TEACHER = 1;
+    private static final byte KIND_PRINCIPAL = 2;
+    private static final byte KIND_VICE_PRINCIPAL = 3;
+    private static final byte KIND_DEPARTMENT_HEAD = 4;
+
+    private ArrayList<Employee> employeeList;
+    private ArrayList<Manager> managerList;
+    private ArrayList<Department> departmentList;
+
+    public EmployeeSnapshot(ArrayList<Employee> employeeList,
+                            ArrayList<Manager> managerList,
+                            ArrayList<Department> departmentList) {
+        this.employeeList = employeeList;
+        this.managerList = managerList;
+        this.departmentList = departmentList;
+    }
+
+    /**
+     * Returns the snapshot file used for a data file.
+     */
+    public static String getSnapshotFilename(String dataFilename) {
+        return dataFilename + ".snap";
+    }
+
+    /**
+     * Loads the snapshot for a data file into the lists, if there is one
+     * and the part of the data file it was built from hasn't changed.
+     * The lists are only touched when the whole snapshot was read.
+     *
+     * @param dataFilename Path of the data file the snapshot was built from
+     * @return Number of bytes of the data file the snapshot covers,
+     *         or -1 if the snapshot could not be used
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    public long load(String dataFilename) throws IOException {
+        Path snapshotPath = Paths.get(getSnapshotFilename(dataFilename));
+        Path dataPath = Paths.get(dataFilename);
+        if (!Files.exists(snapshotPath) || !Files.exists(dataPath)) {
+            return -1;
+        }
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            SnapshotReader in = new SnapshotReader(channel);
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return -1;
+            }
+
+            // cheap size check first, then checksum the bytes the snapshot was built from
+            long sourceSize = in.readLong();
+            long sourceChecksum = in.readLong();
+            if (Files.size(dataPath) < sourceSize || checksum(dataPath, sourceSize) != sourceChecksum) {
+                return -1;
+            }
+
+            String[] strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readString();
+            }
+
+            // departments first, heads are filled in once the employees exist
+            Department[] departments = new Department[in.readInt()];
+            int[] departmentHeads = new int[departments.length];
+            for (int i = 0; i < departments.length; i++) {
+                Department dept = new AcademicDepartment();
+                dept.departmentId = stringAt(strings, in.readInt());
+                dept.departmentName = StringInterner.intern(stringAt(strings, in.readInt()));
+                int type = in.readByte();
+                dept.departmentType = type >= 0 ? DepartmentType.values()[type] : null;
+                departmentHeads[i] = in.readInt();
+                departments[i] = dept;
+            }
+
+            Employee[] employees = new Employee[in.readInt()];
+            int[] managerIndexes = new int[employees.length];
+            for (int i = 0; i < employees.length; i++) {
+                Employee emp = createEmployee(in.readByte());
+                int managerType = in.readByte();
+                emp.employeeId = stringAt(strings, in.readInt());
+                int managerId = in.readInt();
+                emp.firstName = stringAt(strings, in.readInt());
+                emp.lastName = stringAt(strings, in.readInt());
+                emp.gender = StringInterner.intern(stringAt(strings, in.readInt()));
+                emp.email = stringAt(strings, in.readInt());
+                emp.salaryCents = in.readLong();
+                emp.position = StringInterner.intern(stringAt(strings, in.readInt()));
+                emp.jobTitle = StringInterner.intern(stringAt(strings, in.readInt()));
+                emp.company = StringInterner.intern(stringAt(strings, in.readInt()));
+                emp.isRandomlyGenerated = in.readByte() != 0;
+                emp.sourceRowHash = in.readLong();
+                int deptIndex = in.readInt();
+                emp.department = deptIndex >= 0 ? departments[deptIndex] : null;
+                managerIndexes[i] = in.readInt();
+
+                if (emp instanceof Manager) {
+                    Manager manager = (Manager) emp;
+                    manager.managerId = stringAt(strings, managerId);
+                    manager.managerType = managerType >= 0 ? ManagerType.values()[managerType] : null;
+                }
+                employees[i] = emp;
+            }
+
+            // links between objects, now that everything exists
+            for (int i = 0; i < employees.length; i++) {
+                if (managerIndexes[i] >= 0) {
+                    employees[i].manager = (Manager) employees[managerIndexes[i]];
+                }
+            }
+            for (int i = 0; i < departments.length; i++) {
+                if (departmentHeads[i] >= 0) {
+                    departments[i].departmentHead = (Manager) employees[departmentHeads[i]];
+                }
+            }
+
+            Manager[] managers = new Manager[in.readInt()];
+            for (int i = 0; i < managers.length; i++) {
+                managers[i] = (Manager) employees[in.readInt()];
+            }
+
+            for (Department dept : departments) {
+                int count = in.readInt();
+                dept.staffMembers.ensureCapacity(count);
+                for (int j = 0; j < count; j++) {
+                    dept.staffMembers.add(employees[in.readInt()]);
+                }
+                dept.staffCount = count;
+            }
+
+            for (Employee emp : employees) {
+                if (emp instanceof Manager) {
+                    Manager manager = (Manager) emp;
+                    int count = in.readInt();
+                    manager.managedEmployees.ensureCapacity(count);
+                    for (int j = 0; j < count; j++) {
+                        manager.managedEmployees.add(employees[in.readInt()]);
+                    }
+                    manager.employeeCount = count;
+                }
+            }
+
+            // everything was read, now publish it to the lists
+            employeeList.ensureCapacity(employeeList.size() + employees.length);
+            for (Employee emp : employees) {
+                employeeList.add(emp);
+            }
+            for (Department dept : departments) {
+                departmentList.add(dept);
+            }
+            for (Manager manager : managers) {
+                managerList.add(manager);
+            }
+            return sourceSize;
+
+        } catch (IndexOutOfBoundsException | ClassCastException e) {
+            throw new IOException("Snapshot " + snapshotPath + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Writes the current lists as the snapshot for a data file.
+     * The snapshot is written to a temporary file first and then moved into
+     * place, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param dataFilename Path of the data file the lists were loaded from
+     * @param sourceSize   Number of bytes of the data file that were loaded
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void save(String dataFilename, long sourceSize) throws IOException {
+        Path snapshotPath = Paths.get(getSnapshotFilename(dataFilename));
+        Path tempPath = Paths.get(getSnapshotFilename(dataFilename) + ".tmp");
+        long sourceChecksum = checksum(Paths.get(dataFilename), sourceSize);
+
+        // give every object an index so links can be written as numbers
+        IdentityHashMap<Employee, Integer> employeeIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < employeeList.size(); i++) {
+            employeeIndexes.put(employeeList.get(i), i);
+        }
+        IdentityHashMap<Department, Integer> departmentIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < departmentList.size(); i++) {
+            departmentIndexes.put(departmentList.get(i), i);
+        }
+
+        StringTable strings = new StringTable();
+        for (Department dept : departmentList) {
+            strings.add(dept.departmentId);
+            strings.add(dept.departmentName);
+        }
+        for (Employee emp : employeeList) {
+            strings.add(emp.employeeId);
+            if (emp instanceof Manager) {
+                strings.add(((Manager) emp).managerId);
+            }
+            strings.add(emp.firstName);
+            strings.add(emp.lastName);
+            strings.add(emp.gender);
+            strings.add(emp.email);
+            strings.add(emp.position);
+            strings.add(emp.jobTitle);
+            strings.add(emp.company);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(tempPath.toFile()), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceChecksum);
+
+            out.writeInt(strings.values.size());
+            for (String value : strings.values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(departmentList.size());
+            for (Department dept : departmentList) {
+                out.writeInt(strings.indexOf(dept.departmentId));
+                out.writeInt(strings.indexOf(dept.departmentName));
+                out.writeByte(dept.departmentType != null ? dept.departmentType.ordinal() : -1);
+                out.writeInt(indexOf(employeeIndexes, dept.departmentHead));
+            }
+
+            out.writeInt(employeeList.size());
+            for (Employee emp : employeeList) {
+                Manager manager = emp instanceof Manager ? (Manager) emp : null;
+                out.writeByte(kindOf(emp));
+                out.writeByte(manager != null && manager.managerType != null ? manager.managerType.ordinal() : -1);
+                out.writeInt(strings.indexOf(emp.employeeId));
+                out.writeInt(manager != null ? strings.indexOf(manager.managerId) : -1);
+                out.writeInt(strings.indexOf(emp.firstName));
+                out.writeInt(strings.indexOf(emp.lastName));
+                out.writeInt(strings.indexOf(emp.gender));
+                out.writeInt(strings.indexOf(emp.email));
+                out.writeLong(emp.salaryCents);
+                out.writeInt(strings.indexOf(emp.position));
+                out.writeInt(strings.indexOf(emp.jobTitle));
+                out.writeInt(strings.indexOf(emp.company));
+                out.writeByte(emp.isRandomlyGenerated ? 1 : 0);
+                out.writeLong(emp.sourceRowHash);
+                out.writeInt(indexOf(departmentIndexes, emp.department));
+                out.writeInt(indexOf(employeeIndexes, emp.manager));
+            }
+
+            out.writeInt(managerList.size());
+            for (Manager manager : managerList) {
+                out.writeInt(employeeIndexes.get(manager));
+            }
+
+            for (Department dept : departmentList) {
+                writeIndexes(out, dept.staffMembers, employeeIndexes);
+            }
+
+            for (Employee emp : employeeList) {
+                if (emp instanceof Manager) {
+                    writeIndexes(out, ((Manager) emp).managedEmployees, employeeIndexes);
+                }
+            }
+        }
+
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Calculates the CRC32 of the first {@code length} bytes of a file.
+     */
+    private static long checksum(Path path, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = 0;
+            while (position < length) {
+                long size = Math.min(WINDOW_SIZE, length - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                crc.update(buffer);
+                position += size;
+            }
+        }
+        return crc.getValue();
+    }
+
+    private static Employee createEmployee(byte kind) throws IOException {
+        switch (kind) {
+            case KIND_EMPLOYEE:
+                return new Employee();
+            case KIND_TEACHER:
+                return new Teacher();
+            case KIND_PRINCIPAL:
+                return new Principal();
+            case KIND_VICE_PRINCIPAL:
+                return new VicePrincipal();
+            case KIND_DEPARTMENT_HEAD:
+                return new DepartmentHead();
+            default:
+                throw new IOException("Unknown employee kind in snapshot: " + kind);
+        }
+    }
+
+    private static byte kindOf(Employee emp) {
+        if (emp instanceof Principal) return KIND_PRINCIPAL;
+        if (emp instanceof VicePrincipal) return KIND_VICE_PRINCIPAL;
+        if (emp instanceof DepartmentHead) return KIND_DEPARTMENT_HEAD;
+        if (emp instanceof Teacher) return KIND_TEACHER;
+        return KIND_EMPLOYEE;
+    }
+
+    private static String stringAt(String[] strings, int index) {
+        return index >= 0 ? strings[index] : null;
+    }
+
+    private static <T> int indexOf(IdentityHashMap<T, Integer> indexes, T value) {
+        Integer index = value != null ? indexes.get(value) : null;
+        return index != null ? index : -1;
+    }
+
+    private static void writeIndexes(DataOutputStream out, ArrayList<Employee> employees,
+                                     IdentityHashMap<Employee, Integer> employeeIndexes) throws IOException {
+        out.writeInt(employees.size());
+        for (Employee emp : employees) {
+            out.writeInt(employeeIndexes.get(emp));
+        }
+    }
+
+    /**
+     * Distinct strings of the snapshot, each written once and referenced by index.
+     */
+    private static class StringTable {
+        ArrayList<String> values = new ArrayList<>();
+        HashMap<String, Integer> indexes = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !indexes.containsKey(value)) {
+                indexes.put(value, values.size());
+                values.add(value);
+            }
+        }
+
+        int indexOf(String value) {
+            return value != null ? indexes.get(value) : -1;
+        }
+    }
+
+    /**
+     * Reads the snapshot through memory-mapped windows, moving the window
+     * along whenever a read would run past its end.
+     */
+    private static class SnapshotReader {
+
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] scratch = new byte[256];
+
+        SnapshotReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.windowStart = 0;
+            this.window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(WINDOW_SIZE, size));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() >= bytes) {
+                return;
+            }
+            long position = windowStart + window.position();
+            if (position + bytes > size) {
+                throw new IOException("Snapshot ends unexpectedly");
+            }
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(Math.max(WINDOW_SIZE, bytes), size - position));
+        }
+
+        byte readByte() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        int readInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        long readLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        String readString() throws IOException {
+            int length = readInt();
+            if (length < 0) {
+                throw new IOException("Negative string length in snapshot");
+            }
+            ensure(length);
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            window.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
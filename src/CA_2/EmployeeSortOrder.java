@@ -0,0 +1,301 @@
+package CA_2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * EmployeeSortOrder describes how SortingAlgorithms.sort orders employees:
+ * a list of keys (field, direction and where missing values go), compared
+ * one after the other. Built like this:
+ *
+ *   EmployeeSortOrder.by(Field.DEPARTMENT).then(Field.SALARY).descending()
+ *
+ * descending(), nullsFirst() and nullsLast() change the key added last.
+ * Keys are ascending with missing values last unless changed. Orders are
+ * immutable, every call returns a new one.
+ *
+ * Before sorting, each key is turned into a column of longs or ints with
+ * one value per employee (the direction and the missing values are worked
+ * into the numbers), and the row numbers are sorted by those columns. So
+ * a salary or department comparison is two array reads and an int or long
+ * compare: no getters, no boxing, no Strings. Departments and job titles
+ * repeat a lot, so the distinct ones are sorted once and every employee
+ * gets the rank of theirs. Only names are compared as Strings, through
+ * each employee's name key (EmployeeNameKey).
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class EmployeeSortOrder {
+
+    /**
+     * What employees can be sorted by.
+     */
+    public enum Field {
+        NAME,           // first name, then last name, ignoring case
+        SALARY,
+        DEPARTMENT,     // department name, ignoring case; missing if not assigned
+        JOB_TITLE       // ignoring case; missing if null
+    }
+
+    public static final EmployeeSortOrder BY_NAME = by(Field.NAME);
+    public static final EmployeeSortOrder BY_SALARY = by(Field.SALARY).then(Field.NAME);
+    public static final EmployeeSortOrder BY_DEPARTMENT_THEN_SALARY =
+            by(Field.DEPARTMENT).then(Field.SALARY).then(Field.NAME);
+    public static final EmployeeSortOrder BY_JOB_TITLE = by(Field.JOB_TITLE).then(Field.NAME);
+
+    // one entry per key, in order
+    private final Field[] fields;
+    private final boolean[] descending;
+    private final boolean[] nullsFirst;
+
+    private EmployeeSortOrder(Field[] fields, boolean[] descending, boolean[] nullsFirst) {
+        this.fields = fields;
+        this.descending = descending;
+        this.nullsFirst = nullsFirst;
+    }
+
+    /**
+     * An order with a single ascending key.
+     */
+    public static EmployeeSortOrder by(Field field) {
+        return new EmployeeSortOrder(new Field[0], new boolean[0], new boolean[0]).then(field);
+    }
+
+    /**
+     * Adds an ascending key, used when all the keys before it are equal.
+     */
+    public EmployeeSortOrder then(Field field) {
+        if (field == null) {
+            throw new IllegalArgumentException("Field cannot be null");
+        }
+        int count = fields.length + 1;
+        EmployeeSortOrder order = new EmployeeSortOrder(Arrays.copyOf(fields, count),
+                Arrays.copyOf(descending, count), Arrays.copyOf(nullsFirst, count));
+        order.fields[count - 1] = field;
+        return order;
+    }
+
+    /**
+     * Makes the last key descending. Missing values stay where they were.
+     */
+    public EmployeeSortOrder descending() {
+        EmployeeSortOrder order = copy();
+        order.descending[fields.length - 1] = true;
+        return order;
+    }
+
+    /**
+     * Puts employees without a value for the last key (no department, no
+     * job title) before the others. Names and salaries are never missing.
+     */
+    public EmployeeSortOrder nullsFirst() {
+        EmployeeSortOrder order = copy();
+        order.nullsFirst[fields.length - 1] = true;
+        return order;
+    }
+
+    /**
+     * Puts employees without a value for the last key after the others.
+     */
+    public EmployeeSortOrder nullsLast() {
+        EmployeeSortOrder order = copy();
+        order.nullsFirst[fields.length - 1] = false;
+        return order;
+    }
+
+    /**
+     * True for plain ascending name order, which mergeSort already does.
+     */
+    boolean isNameOrder() {
+        return fields.length == 1 && fields[0] == Field.NAME && !descending[0];
+    }
+
+    /**
+     * Like "department, salary descending, name".
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(fields[i].name().toLowerCase().replace('_', ' '));
+            if (descending[i]) {
+                text.append(" descending");
+            }
+            if (nullsFirst[i]) {
+                text.append(" (missing first)");
+            }
+        }
+        return text.toString();
+    }
+
+    private EmployeeSortOrder copy() {
+        return new EmployeeSortOrder(fields.clone(), descending.clone(), nullsFirst.clone());
+    }
+
+    // sorting
+
+    /**
+     * Builds the key columns for these employees and returns a comparator
+     * of row numbers (indexes into employees) that follows this order.
+     * The employees must not be null.
+     */
+    HybridMergeSort.IntComparator rowComparator(Employee[] employees) {
+        HybridMergeSort.IntComparator[] keys = new HybridMergeSort.IntComparator[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            keys[i] = keyComparator(i, employees);
+        }
+
+        if (keys.length == 1) {
+            return keys[0];
+        }
+        if (keys.length == 2) {
+            HybridMergeSort.IntComparator first = keys[0];
+            HybridMergeSort.IntComparator second = keys[1];
+            return (a, b) -> {
+                int result = first.compare(a, b);
+                return result != 0 ? result : second.compare(a, b);
+            };
+        }
+        return (a, b) -> {
+            for (HybridMergeSort.IntComparator key : keys) {
+                int result = key.compare(a, b);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        };
+    }
+
+    private HybridMergeSort.IntComparator keyComparator(int key, Employee[] employees) {
+        switch (fields[key]) {
+            case SALARY: {
+                long[] cents = new long[employees.length];
+                for (int row = 0; row < employees.length; row++) {
+                    long value = employees[row].salaryCents;
+                    // ~ turns the order around and, unlike -, can't overflow
+                    cents[row] = descending[key] ? ~value : value;
+                }
+                return (a, b) -> Long.compare(cents[a], cents[b]);
+            }
+            case DEPARTMENT: {
+                int[] ranks = departmentRanks(employees);
+                encodeRanks(ranks, key);
+                return (a, b) -> Integer.compare(ranks[a], ranks[b]);
+            }
+            case JOB_TITLE: {
+                int[] ranks = jobTitleRanks(employees);
+                encodeRanks(ranks, key);
+                return (a, b) -> Integer.compare(ranks[a], ranks[b]);
+            }
+            default:
+                // NAME: prefixes and keys stored on the employees
+                if (descending[key]) {
+                    return (a, b) -> EmployeeNameKey.compare(employees[b], employees[a]);
+                }
+                return (a, b) -> EmployeeNameKey.compare(employees[a], employees[b]);
+        }
+    }
+
+    /**
+     * Rank of each employee's department name among the distinct names,
+     * -1 for no department.
+     */
+    private static int[] departmentRanks(Employee[] employees) {
+        // few departments, so look each one up once by identity
+        IdentityHashMap<Department, Integer> codes = new IdentityHashMap<>();
+        ArrayList<String> names = new ArrayList<>();
+        int[] ranks = new int[employees.length];
+        for (int row = 0; row < employees.length; row++) {
+            Department department = employees[row].department;
+            if (department == null) {
+                ranks[row] = -1;
+                continue;
+            }
+            Integer code = codes.get(department);
+            if (code == null) {
+                code = names.size();
+                names.add(department.getDepartmentName());
+                codes.put(department, code);
+            }
+            ranks[row] = code;
+        }
+        return replaceCodesWithRanks(ranks, names);
+    }
+
+    /**
+     * Rank of each employee's job title among the distinct titles, -1 for none.
+     */
+    private static int[] jobTitleRanks(Employee[] employees) {
+        HashMap<String, Integer> codes = new HashMap<>();
+        ArrayList<String> titles = new ArrayList<>();
+        int[] ranks = new int[employees.length];
+        for (int row = 0; row < employees.length; row++) {
+            String title = employees[row].jobTitle;
+            if (title == null) {
+                ranks[row] = -1;
+                continue;
+            }
+            Integer code = codes.get(title);
+            if (code == null) {
+                code = titles.size();
+                titles.add(title);
+                codes.put(title, code);
+            }
+            ranks[row] = code;
+        }
+        return replaceCodesWithRanks(ranks, titles);
+    }
+
+    /**
+     * codes[row] is an index into values (or -1). Sorts the distinct values,
+     * ignoring case, and replaces each code with the rank of its value.
+     * Values that are equal ignoring case get the same rank.
+     */
+    private static int[] replaceCodesWithRanks(int[] codes, ArrayList<String> values) {
+        Integer[] byValue = new Integer[values.size()];
+        for (int i = 0; i < byValue.length; i++) {
+            byValue[i] = i;
+        }
+        Comparator<String> ignoringCase = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+        Arrays.sort(byValue, (a, b) -> ignoringCase.compare(values.get(a), values.get(b)));
+
+        int[] rankOfCode = new int[byValue.length];
+        int rank = -1;
+        for (int i = 0; i < byValue.length; i++) {
+            if (i == 0 || ignoringCase.compare(values.get(byValue[i - 1]), values.get(byValue[i])) != 0) {
+                rank++;
+            }
+            rankOfCode[byValue[i]] = rank;
+        }
+
+        for (int row = 0; row < codes.length; row++) {
+            if (codes[row] >= 0) {
+                codes[row] = rankOfCode[codes[row]];
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Works the direction and the place of missing values (-1) into ranks,
+     * so the comparator only has to compare the ints.
+     */
+    private void encodeRanks(int[] ranks, int key) {
+        for (int row = 0; row < ranks.length; row++) {
+            int rank = ranks[row];
+            if (rank < 0) {
+                ranks[row] = nullsFirst[key] ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            } else if (descending[key]) {
+                ranks[row] = ~rank;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package CA_2;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * EmployeeTrigramIndex finds the employees whose name contains a search
+ * term without looking at every employee.
+ *
+ * Every employee's lowercase full name "first last" is cut into trigrams,
+ * the overlapping 3 character pieces ("buffy summers" gives "buf", "uff",
+ * "ffy", "fy ", ...). For each trigram the index keeps a posting list: the
+ * numbers of the employees whose name has it, in the order they were
+ * added. A name that contains the term must contain all of the term's
+ * trigrams, so only employees on every one of those lists can match. The
+ * shortest list is intersected with the others and the few employees left
+ * are checked with EmployeeNameKey.matches, the same check linearSearch
+ * does, so the results are exactly the same.
+ *
+ * Terms shorter than 3 characters have no trigrams; they match so many
+ * employees that the index wouldn't help, so those go through all names.
+ *
+ * Trigrams are kept in a long array with linear probing (like
+ * RowHashTable), three 16-bit chars to a long, so nothing is boxed.
+ * Names only change on a reload, which rebuilds the index.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeTrigramIndex implements EmployeeIndex {
+
+    // employee number -> employee, in the order they were added
+    private Employee[] employees;
+    private int employeeCount;
+
+    // trigram table: code (never 0) -> posting list of employee numbers
+    private long[] trigrams;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int trigramCount;
+    private int mask;
+
+    public EmployeeTrigramIndex() {
+        clear();
+    }
+
+    public int size() {
+        return employeeCount;
+    }
+
+    /**
+     * Number of different trigrams in the names, for statistics.
+     */
+    public int getTrigramCount() {
+        return trigramCount;
+    }
+
+    @Override
+    public void add(Employee employee) {
+        if (employee == null) {
+            return;
+        }
+        if (employeeCount == employees.length) {
+            employees = Arrays.copyOf(employees, employees.length * 2);
+        }
+        int number = employeeCount++;
+        employees[number] = employee;
+
+        String key = employee.getNameKey();
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            int slot = findOrAddSlot(trigramAt(key, i));
+            int size = postingSizes[slot];
+            // the same trigram twice in one name is only listed once
+            if (size > 0 && postings[slot][size - 1] == number) {
+                continue;
+            }
+            if (size == postings[slot].length) {
+                postings[slot] = Arrays.copyOf(postings[slot], size * 2);
+            }
+            postings[slot][size] = number;
+            postingSizes[slot] = size + 1;
+        }
+    }
+
+    @Override
+    public void rebuild(List<Employee> employeeList) {
+        clear();
+        for (Employee employee : employeeList) {
+            add(employee);
+        }
+    }
+
+    /**
+     * Employees whose first name, last name or full name contains the
+     * search term, ignoring case, in the order they were added.
+     *
+     * @param searchName Name or partial name to search for
+     * @return Matching employees (empty if none found)
+     */
+    public Employee[] search(String searchName) {
+        if (searchName == null || searchName.trim().isEmpty()) {
+            return new Employee[0];
+        }
+        String searchTerm = searchName.trim().toLowerCase();
+
+        if (searchTerm.length() < 3) {
+            return verify(null, employeeCount, searchTerm);
+        }
+
+        // posting list of every trigram of the term, shortest first
+        int termTrigrams = searchTerm.length() - 2;
+        int[] slots = new int[termTrigrams];
+        for (int i = 0; i < termTrigrams; i++) {
+            int slot = findSlot(trigramAt(searchTerm, i));
+            if (trigrams[slot] == 0) {
+                return new Employee[0];     // no name has this trigram
+            }
+            slots[i] = slot;
+        }
+        sortBySize(slots);
+
+        int[] candidates = Arrays.copyOf(postings[slots[0]], postingSizes[slots[0]]);
+        int candidateCount = candidates.length;
+        for (int i = 1; i < slots.length && candidateCount > 0; i++) {
+            if (slots[i] != slots[i - 1]) {
+                candidateCount = intersect(candidates, candidateCount, postings[slots[i]], postingSizes[slots[i]]);
+            }
+        }
+
+        return verify(candidates, candidateCount, searchTerm);
+    }
+
+    /**
+     * Checks the candidates (or the first count employees if candidates is
+     * null) against the term and returns the ones that really match.
+     */
+    private Employee[] verify(int[] candidates, int count, String searchTerm) {
+        Employee[] matches = new Employee[Math.min(count, 16)];
+        int matchCount = 0;
+        for (int i = 0; i < count; i++) {
+            Employee employee = employees[candidates != null ? candidates[i] : i];
+            if (EmployeeNameKey.matches(employee.getNameKey(), searchTerm)) {
+                if (matchCount == matches.length) {
+                    matches = Arrays.copyOf(matches, matches.length * 2);
+                }
+                matches[matchCount++] = employee;
+            }
+        }
+        return Arrays.copyOf(matches, matchCount);
+    }
+
+    /**
+     * Keeps the candidates that are also in the list. Both are sorted, so
+     * the list is searched forward from where the last candidate was found,
+     * in growing steps, which skips most of a long list.
+     *
+     * @return Number of candidates kept, moved to the front
+     */
+    private static int intersect(int[] candidates, int count, int[] list, int listSize) {
+        int kept = 0;
+        int position = 0;
+        for (int i = 0; i < count && position < listSize; i++) {
+            int candidate = candidates[i];
+            if (list[position] < candidate) {
+                // gallop to a step past the candidate, then binary search back
+                int step = 1;
+                int low = position;
+                while (position + step < listSize && list[position + step] < candidate) {
+                    low = position + step;
+                    step <<= 1;
+                }
+                int high = Math.min(listSize - 1, position + step);
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (list[middle] < candidate) {
+                        low = middle + 1;
+                    } else {
+                        high = middle;
+                    }
+                }
+                position = low;
+            }
+            if (list[position] == candidate) {
+                candidates[kept++] = candidate;
+            }
+        }
+        return kept;
+    }
+
+    private void sortBySize(int[] slots) {
+        // a few trigrams per term, insertion sort is plenty
+        for (int i = 1; i < slots.length; i++) {
+            int slot = slots[i];
+            int j = i - 1;
+            while (j >= 0 && postingSizes[slots[j]] > postingSizes[slot]) {
+                slots[j + 1] = slots[j];
+                j--;
+            }
+            slots[j + 1] = slot;
+        }
+    }
+
+    // trigram table
+
+    /**
+     * The trigram starting at index as a long. The '\0' between the names
+     * in a key counts as the space of the full name.
+     */
+    private static long trigramAt(String text, int index) {
+        long code = 1L << 48;   // so no trigram is 0, which marks an empty slot
+        for (int i = index; i < index + 3; i++) {
+            char c = text.charAt(i);
+            code = (code << 16) | (c == EmployeeNameKey.SEPARATOR ? ' ' : c);
+        }
+        return code;
+    }
+
+    private int findSlot(long code) {
+        // codes are very regular, so mix the bits before masking
+        long mixed = code * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed >>> 40) & mask;
+        while (trigrams[slot] != 0 && trigrams[slot] != code) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int findOrAddSlot(long code) {
+        int slot = findSlot(code);
+        if (trigrams[slot] == 0) {
+            // keep the table at most half full so probe runs stay short
+            if ((trigramCount + 1) * 2 > trigrams.length) {
+                grow();
+                slot = findSlot(code);
+            }
+            trigrams[slot] = code;
+            postings[slot] = new int[2];
+            trigramCount++;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldTrigrams = trigrams;
+        int[][] oldPostings = postings;
+        int[] oldSizes = postingSizes;
+
+        allocateTable(oldTrigrams.length * 2);
+        for (int i = 0; i < oldTrigrams.length; i++) {
+            if (oldTrigrams[i] != 0) {
+                int slot = findSlot(oldTrigrams[i]);
+                trigrams[slot] = oldTrigrams[i];
+                postings[slot] = oldPostings[i];
+                postingSizes[slot] = oldSizes[i];
+            }
+        }
+    }
+
+    private void allocateTable(int capacity) {
+        trigrams = new long[capacity];
+        postings = new int[capacity][];
+        postingSizes = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void clear() {
+        employees = new Employee[16];
+        employeeCount = 0;
+        trigramCount = 0;
+        allocateTable(1024);
+    }
+}
@@ -0,0 +1,584 @@
+package CA_2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * EmployeeWriteAheadLog keeps employees added while the system is running,
+ * so they are not lost when the program closes.
+ *
+ * Every add is appended to a log file next to the data file instead of
+ * rewriting the data file. A background thread writes queued records in
+ * batches (group commit) and forces them to disk according to the fsync
+ * policy. On start the log is replayed into the lists, and once it grows
+ * past a threshold the writer thread compacts it by appending its records
+ * to the data file as normal CSV rows and emptying the log.
+ *
+ * Log layout: a header (magic, version, compaction start and end offsets)
+ * followed by records of [length][CRC32][payload]. A record with a bad
+ * length or checksum marks the end of the log, anything after it is a torn
+ * write and is cut off.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class EmployeeWriteAheadLog {
+
+    /**
+     * When records are forced to disk.
+     */
+    public enum FsyncPolicy {
+        ALWAYS,     // every add waits until its batch has been forced
+        INTERVAL,   // batches are forced at most every FSYNC_INTERVAL_MS, adds never wait
+        NEVER       // left to the operating system
+    }
+
+    private static final int MAGIC = 0x534D5357; // "SMSW"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 24;
+
+    // an added employee, salary in cents as a long
+    private static final byte OP_ADD_CENTS = 2;
+
+    private static final long FSYNC_INTERVAL_MS = 50;
+    private static final int MAX_BATCH = 4096;
+
+    // compact into the data file once the log is bigger than this
+    private static final long COMPACT_THRESHOLD = 4L << 20;
+
+    private static final String CSV_HEADER =
+            "First name,Last name,Gender,Email,Salary,Department,Position,Job title,Company";
+
+    // queued by close() to tell the writer thread to finish
+    private static final byte[] CLOSE_MARKER = new byte[0];
+
+    private ArrayList<Department> departmentList;
+    private EmployeeFileLoader fileLoader;
+    private ManagerCreator managerCreator;
+
+    private final Path dataPath;
+    private final Path logPath;
+    private final FsyncPolicy fsyncPolicy;
+
+    private FileChannel channel;
+    private long writePosition;
+    private Thread writerThread;
+    private final LinkedBlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+
+    // sequence numbers used to let ALWAYS callers wait for their record
+    private final Object commitLock = new Object();
+    private long appendedSequence;
+    private long durableSequence;
+    private volatile IOException writeFailure;
+
+    // data file ranges appended by compaction while running, the rows in
+    // them are already in the lists so a file follower has to skip them
+    private final List<long[]> compactedRanges = Collections.synchronizedList(new ArrayList<>());
+
+    public EmployeeWriteAheadLog(String dataFilename,
+                                 ArrayList<Department> departmentList,
+                                 EmployeeFileLoader fileLoader,
+                                 ManagerCreator managerCreator,
+                                 FsyncPolicy fsyncPolicy) {
+        this.dataPath = Paths.get(dataFilename);
+        this.logPath = Paths.get(getLogFilename(dataFilename));
+        this.departmentList = departmentList;
+        this.fileLoader = fileLoader;
+        this.managerCreator = managerCreator;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Returns the log file used for a data file.
+     */
+    public static String getLogFilename(String dataFilename) {
+        return dataFilename + ".wal";
+    }
+
+    /**
+     * Opens the log, creating it if needed, and starts the writer thread.
+     * If the last run stopped in the middle of a compaction it is finished
+     * or undone here, so this must be called before the data file is read.
+     *
+     * @throws IOException if the log cannot be opened
+     */
+    public void open() throws IOException {
+        channel = FileChannel.open(logPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            writeHeader(-1, -1);
+            channel.force(true);
+        } else {
+            recoverCompaction();
+        }
+
+        // cut off a torn record left by a crash so new records follow valid ones
+        writePosition = readRecords(null);
+        if (writePosition < channel.size()) {
+            channel.truncate(writePosition);
+        }
+
+        writerThread = new Thread(this::writeLoop, "employee-wal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Adds the employees recorded in the log to the lists. Call after the
+     * data file has been loaded.
+     *
+     * They are created and added by the file loader, like rows appended to
+     * the data file, so an employee comes back the same whether it is read
+     * from the log or, after a compaction, from its CSV row (a "Principal"
+     * position is a Principal either way). The CSV row has no column for
+     * "randomly generated", so the log doesn't keep it either: a generated
+     * employee comes back as an ordinary one from both.
+     *
+     * @return Number of employees replayed
+     * @throws IOException if the log cannot be read
+     */
+    public int replay() throws IOException {
+        ArrayList<LogRecord> records = new ArrayList<>();
+        readRecords(records);
+
+        EmployeeFileLoader.ChunkResult rows = new EmployeeFileLoader.ChunkResult();
+        for (LogRecord record : records) {
+            Employee employee = EmployeeFileLoader.createEmployee(record.firstName, record.lastName,
+                    record.gender, record.email, record.salaryCents, record.position, record.jobTitle,
+                    record.company);
+            rows.employees.add(employee);
+            rows.departmentNames.add(record.departmentName);
+        }
+
+        int departmentCount = departmentList.size();
+        fileLoader.addRows(rows);
+        if (!rows.employees.isEmpty()) {
+            // a new department needs a head before anyone can report to it
+            if (departmentList.size() > departmentCount) {
+                managerCreator.createDepartmentHeads();
+            }
+            managerCreator.assignManagers(rows.employees);
+        }
+        return records.size();
+    }
+
+    /**
+     * Appends an added employee to the log.
+     * Only waits for the disk when the fsync policy is ALWAYS.
+     *
+     * @param employee The employee that was added
+     */
+    public void logAdd(Employee employee) {
+        byte[] record;
+        try {
+            record = encodeAdd(employee);
+        } catch (IOException e) {
+            // writing to a byte array can't fail
+            throw new IllegalStateException(e);
+        }
+
+        long sequence;
+        synchronized (commitLock) {
+            sequence = ++appendedSequence;
+            queue.add(record);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            waitUntilDurable(sequence);
+        }
+    }
+
+    /**
+     * Writes everything still queued, forces it to disk and stops the writer thread.
+     */
+    public void close() {
+        if (writerThread == null) {
+            return;
+        }
+        queue.add(CLOSE_MARKER);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writerThread = null;
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not close log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the [start, end) data file ranges that compaction has
+     * appended since the log was opened. A range is listed before any of
+     * its bytes are written, so a reader never sees the rows first.
+     */
+    public List<long[]> getCompactedRanges() {
+        synchronized (compactedRanges) {
+            return new ArrayList<>(compactedRanges);
+        }
+    }
+
+    // writer thread
+
+    private void writeLoop() {
+        ArrayList<byte[]> batch = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        boolean unforced = false;
+
+        try {
+            while (true) {
+                byte[] first = queue.poll(FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // quiet moment, catch up on an INTERVAL force
+                    if (unforced) {
+                        channel.force(false);
+                        unforced = false;
+                        lastForce = System.nanoTime();
+                    }
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH);
+
+                boolean closing = batch.remove(CLOSE_MARKER);
+                int written = writeBatch(batch);
+
+                boolean force = fsyncPolicy == FsyncPolicy.ALWAYS || closing ||
+                        (fsyncPolicy == FsyncPolicy.INTERVAL &&
+                                System.nanoTime() - lastForce >= TimeUnit.MILLISECONDS.toNanos(FSYNC_INTERVAL_MS));
+                if (force) {
+                    channel.force(false);
+                    lastForce = System.nanoTime();
+                    unforced = false;
+                } else if (written > 0) {
+                    unforced = fsyncPolicy == FsyncPolicy.INTERVAL;
+                }
+
+                synchronized (commitLock) {
+                    durableSequence += written;
+                    commitLock.notifyAll();
+                }
+                batch.clear();
+
+                if (closing) {
+                    return;
+                }
+                if (writePosition >= COMPACT_THRESHOLD) {
+                    compact();
+                }
+            }
+        } catch (IOException e) {
+            writeFailure = e;
+            System.out.println("Warning: Employee log stopped working: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (commitLock) {
+            commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Writes a batch of records with one write call.
+     */
+    private int writeBatch(ArrayList<byte[]> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        int size = 0;
+        for (byte[] record : batch) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (byte[] record : batch) {
+            buffer.put(record);
+        }
+        buffer.flip();
+
+        writeFully(channel, buffer, writePosition);
+        writePosition += size;
+        return batch.size();
+    }
+
+    private void waitUntilDurable(long sequence) {
+        synchronized (commitLock) {
+            while (durableSequence < sequence && writeFailure == null) {
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // compaction
+
+    /**
+     * Appends every logged employee to the data file and empties the log.
+     * The header records where the rows go first, so a crash part way
+     * through can be finished or undone by recoverCompaction().
+     * The data file is never created here; if it is gone the log stops.
+     */
+    private void compact() throws IOException {
+        ArrayList<LogRecord> records = new ArrayList<>();
+        readRecords(records);
+        if (records.isEmpty()) {
+            return;
+        }
+
+        try (FileChannel data = FileChannel.open(dataPath,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long start = data.size();
+
+            StringBuilder rows = new StringBuilder();
+            if (start == 0) {
+                rows.append(CSV_HEADER).append('\n');
+            } else if (!endsWithNewline(data, start)) {
+                rows.append('\n');
+            }
+            for (LogRecord record : records) {
+                appendCsvRow(rows, record);
+            }
+            byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+
+            writeHeader(start, start + bytes.length);
+            channel.force(true);
+            compactedRanges.add(new long[] {start, start + bytes.length});
+
+            writeFully(data, ByteBuffer.wrap(bytes), start);
+            data.force(true);
+        }
+
+        channel.truncate(HEADER_SIZE);
+        writePosition = HEADER_SIZE;
+        writeHeader(-1, -1);
+        channel.force(true);
+    }
+
+    /**
+     * Finishes or undoes a compaction that was interrupted by a crash.
+     * If all rows reached the data file the log is emptied, otherwise the
+     * partial rows are cut off the data file and the log is kept.
+     */
+    private void recoverCompaction() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException(logPath + " is not an employee log");
+        }
+        long compactStart = header.getLong();
+        long compactEnd = header.getLong();
+        if (compactStart < 0) {
+            return;
+        }
+
+        try (FileChannel data = FileChannel.open(dataPath,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (data.size() >= compactEnd) {
+                channel.truncate(HEADER_SIZE);
+            } else if (data.size() > compactStart) {
+                data.truncate(compactStart);
+                data.force(true);
+            }
+        }
+        writeHeader(-1, -1);
+        channel.force(true);
+    }
+
+    private void writeHeader(long compactStart, long compactEnd) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putLong(compactStart);
+        header.putLong(compactEnd);
+        header.flip();
+        writeFully(channel, header, 0);
+    }
+
+    private static boolean endsWithNewline(FileChannel data, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        readFully(data, last, size - 1);
+        return last.get(0) == '\n';
+    }
+
+    private static void appendCsvRow(StringBuilder rows, LogRecord record) {
+        rows.append(quote(record.firstName)).append(',')
+                .append(quote(record.lastName)).append(',')
+                .append(quote(record.gender)).append(',')
+                .append(quote(record.email)).append(',')
+                .append(SalaryCents.format(record.salaryCents)).append(',')
+                .append(quote(record.departmentName)).append(',')
+                .append(quote(record.position)).append(',')
+                .append(quote(record.jobTitle)).append(',')
+                .append(quote(record.company)).append('\n');
+    }
+
+    /**
+     * Quotes a CSV field when it contains a separator, quote or line break,
+     * or starts or ends with whitespace that the reader would trim.
+     */
+    private static String quote(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 ||
+                value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0 ||
+                value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ';
+        if (!needsQuotes) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    // records
+
+    private static byte[] encodeAdd(Employee employee) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(160);
+        DataOutputStream out = new DataOutputStream(payload);
+        out.writeByte(OP_ADD_CENTS);
+        out.writeUTF(nullToEmpty(employee.firstName));
+        out.writeUTF(nullToEmpty(employee.lastName));
+        out.writeUTF(nullToEmpty(employee.gender));
+        out.writeUTF(nullToEmpty(employee.email));
+        out.writeLong(employee.salaryCents);
+        out.writeUTF(employee.getDepartment() != null ? employee.getDepartment().getDepartmentName() : "");
+        out.writeUTF(nullToEmpty(employee.position));
+        out.writeUTF(nullToEmpty(employee.jobTitle));
+        out.writeUTF(nullToEmpty(employee.company));
+        out.flush();
+
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + bytes.length);
+        record.putInt(bytes.length);
+        record.putInt((int) crc.getValue());
+        record.put(bytes);
+        return record.array();
+    }
+
+    /**
+     * Reads the valid records of the log.
+     *
+     * @param records List to add the records to, or null to only find the end
+     * @return Offset just after the last valid record
+     */
+    private long readRecords(ArrayList<LogRecord> records) throws IOException {
+        long size = channel.size();
+        if (size <= HEADER_SIZE) {
+            return HEADER_SIZE;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - HEADER_SIZE));
+        readFully(channel, buffer, HEADER_SIZE);
+        buffer.flip();
+
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+
+            if (records != null) {
+                records.add(decodeRecord(payload));
+            }
+        }
+
+        return HEADER_SIZE + buffer.position();
+    }
+
+    private static LogRecord decodeRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        if (op != OP_ADD_CENTS) {
+            throw new IOException("Unknown record type in employee log: " + op);
+        }
+
+        LogRecord record = new LogRecord();
+        record.firstName = in.readUTF();
+        record.lastName = in.readUTF();
+        record.gender = in.readUTF();
+        record.email = in.readUTF();
+        record.salaryCents = in.readLong();
+        record.departmentName = in.readUTF();
+        record.position = in.readUTF();
+        record.jobTitle = in.readUTF();
+        record.company = in.readUTF();
+        return record;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel source, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = source.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * One added employee as stored in the log.
+     */
+    private static class LogRecord {
+        String firstName;
+        String lastName;
+        String gender;
+        String email;
+        long salaryCents;
+        String departmentName;
+        String position;
+        String jobTitle;
+        String company;
+    }
+}
@@ -0,0 +1,409 @@
+package CA_2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ExternalEmployeeSort sorts an applicants file by name when it is too big
+ * to load into memory. The output is the same file (header first) with the
+ * rows in the order mergeSort would put the employees in.
+ *
+ * 1. The file is read in chunks. Each row is kept as its name key
+ *    (EmployeeNameKey) and its raw bytes, until the rows held reach the
+ *    memory limit.
+ * 2. The chunk is sorted by the keys and written to a temporary run file:
+ *    for every row the key and the row, each with its length in front.
+ * 3. The runs are merged with a priority queue holding the next row of
+ *    each run. If there are too many runs to give each one a read buffer
+ *    within the limit, groups of runs are merged into bigger runs first.
+ *
+ * Rows never become Employee objects, so nothing else in memory grows with
+ * the file. The memory limit covers the rows held in step 1 and the read
+ * buffers; it is a limit on what this class keeps, not on the JVM heap.
+ * Stable: rows with the same name keep their order from the file.
+ * Rows with fewer than 9 columns are skipped, like EmployeeFileLoader does.
+ *
+ * Can also be run by hand:
+ *
+ *   java CA_2.ExternalEmployeeSort input.csv output.csv [memory limit in MB]
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class ExternalEmployeeSort {
+
+    public static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    // smallest limit accepted, below this the buffers alone don't fit
+    public static final long MIN_MEMORY_LIMIT = 1L << 20;
+
+    // read buffer for each run while merging
+    private static final int MERGE_BUFFER_SIZE = 64 << 10;
+
+    // rough bytes a held row uses besides its key and raw bytes: the Row,
+    // the String and both arrays' headers, plus its slots in the row list
+    // and the sort buffer
+    private static final int ROW_OVERHEAD = 112;
+
+    private final long memoryLimit;
+    private final File tempDirectory;
+
+    // statistics of the last sort
+    private long lastRowCount;
+    private int lastRunCount;
+    private int lastMergePasses;
+
+    /**
+     * Uses the default memory limit and the system temp directory.
+     */
+    public ExternalEmployeeSort() {
+        this(DEFAULT_MEMORY_LIMIT, null);
+    }
+
+    /**
+     * @param memoryLimit   Most bytes of rows and buffers to hold at once
+     * @param tempDirectory Where to put the run files, null for the system temp directory
+     */
+    public ExternalEmployeeSort(long memoryLimit, File tempDirectory) {
+        if (memoryLimit < MIN_MEMORY_LIMIT) {
+            throw new IllegalArgumentException("Memory limit must be at least " + MIN_MEMORY_LIMIT + " bytes");
+        }
+        this.memoryLimit = memoryLimit;
+        this.tempDirectory = tempDirectory;
+    }
+
+    public long getLastRowCount() { return lastRowCount; }
+    public int getLastRunCount() { return lastRunCount; }
+    public int getLastMergePasses() { return lastMergePasses; }
+
+    /**
+     * Sorts an applicants file into another file.
+     *
+     * @return Number of rows written, not counting the header
+     */
+    public long sort(String inputFile, String outputFile) throws IOException {
+        try (OutputStream out = new FileOutputStream(outputFile)) {
+            return sort(inputFile, out);
+        }
+    }
+
+    /**
+     * Sorts an applicants file and writes the result to a stream.
+     * The stream is flushed but not closed.
+     *
+     * @return Number of rows written, not counting the header
+     */
+    public long sort(String inputFile, OutputStream out) throws IOException {
+        lastRowCount = 0;
+        lastRunCount = 0;
+        lastMergePasses = 0;
+
+        ArrayList<File> runs = new ArrayList<>();
+        try {
+            byte[] header = writeSortedRuns(inputFile, runs);
+            lastRunCount = runs.size();
+
+            // too many runs to give each a buffer: merge groups of them first
+            int maxRunsPerMerge = (int) Math.max(2, memoryLimit / MERGE_BUFFER_SIZE - 1);
+            while (runs.size() > maxRunsPerMerge) {
+                ArrayList<File> merged = new ArrayList<>();
+                for (int from = 0; from < runs.size(); from += maxRunsPerMerge) {
+                    File run = createRunFile();
+                    merged.add(run);
+                    try (DataOutputStream runOut = openRun(run)) {
+                        mergeRuns(runs.subList(from, Math.min(runs.size(), from + maxRunsPerMerge)), runOut, true);
+                    }
+                }
+                deleteAll(runs);
+                runs = merged;
+                lastMergePasses++;
+            }
+
+            BufferedOutputStream output = new BufferedOutputStream(out, MERGE_BUFFER_SIZE);
+            if (header != null) {
+                output.write(header);
+                output.write('\n');
+            }
+            lastRowCount = mergeRuns(runs, output, false);
+            lastMergePasses++;
+            output.flush();
+            return lastRowCount;
+        } finally {
+            deleteAll(runs);
+        }
+    }
+
+    /**
+     * Displays what the last sort did.
+     */
+    public void displaySortStatistics() {
+        System.out.println("Rows sorted: " + lastRowCount);
+        System.out.println("Sorted runs written: " + lastRunCount);
+        System.out.println("Merge passes: " + lastMergePasses);
+        System.out.println(String.format("Memory limit: %.1f MB", memoryLimit / (1024.0 * 1024.0)));
+    }
+
+    // step 1 and 2: sorted runs
+
+    /**
+     * A row held in memory: its name key and its bytes without the line break.
+     */
+    private static class Row {
+        final String key;
+        final byte[] bytes;
+
+        Row(String key, byte[] bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final Comparator<Row> ROW_ORDER = (a, b) -> a.key.compareTo(b.key);
+
+    /**
+     * Reads the file, writing a sorted run every time the rows held reach
+     * the memory limit.
+     *
+     * @return The header line, or null if the file is empty
+     */
+    private byte[] writeSortedRuns(String inputFile, ArrayList<File> runs) throws IOException {
+        // up to a quarter of the limit for reading, the rest for the rows of a run
+        int readBufferSize = (int) Math.min(4L << 20, memoryLimit / 4);
+        long runLimit = memoryLimit - readBufferSize;
+
+        byte[] header = null;
+        ArrayList<Row> rows = new ArrayList<>();
+        long rowBytes = 0;
+
+        byte[] buffer = new byte[readBufferSize];
+        int filled = 0;
+        boolean endOfFile = false;
+        boolean headerPending = true;
+        CsvTokenizer tokenizer = new CsvTokenizer();
+
+        try (InputStream in = new FileInputStream(inputFile)) {
+            while (!endOfFile || filled > 0) {
+                // fill the buffer up
+                while (!endOfFile && filled < buffer.length) {
+                    int read = in.read(buffer, filled, buffer.length - filled);
+                    if (read < 0) {
+                        endOfFile = true;
+                    } else {
+                        filled += read;
+                    }
+                }
+
+                tokenizer.reset(buffer, 0, filled, filled);
+                int consumed = 0;
+                while (tokenizer.nextRecord()) {
+                    // a record cut off by the end of the buffer is read again with the next bytes
+                    if (!tokenizer.isRecordComplete() && !endOfFile) {
+                        break;
+                    }
+                    consumed = tokenizer.getPosition();
+
+                    byte[] bytes = recordBytes(buffer, tokenizer);
+                    if (headerPending) {
+                        headerPending = false;
+                        header = bytes;
+                        continue;
+                    }
+                    if (tokenizer.getFieldCount() < 9) {
+                        continue;
+                    }
+
+                    Row row = new Row(EmployeeNameKey.of(tokenizer.getString(0), tokenizer.getString(1)), bytes);
+                    rows.add(row);
+                    rowBytes += ROW_OVERHEAD + bytes.length + 2L * row.key.length();
+                    if (rowBytes >= runLimit) {
+                        runs.add(writeRun(rows));
+                        rows.clear();
+                        rowBytes = 0;
+                    }
+                }
+
+                // keep the unfinished record at the start of the buffer
+                System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+                filled -= consumed;
+                if (consumed == 0 && filled == buffer.length) {
+                    // one record bigger than the whole buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                if (endOfFile && consumed == 0) {
+                    break;
+                }
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            runs.add(writeRun(rows));
+        }
+        return header;
+    }
+
+    /**
+     * The bytes of the current record, without the \r of a \r\n line ending.
+     */
+    private static byte[] recordBytes(byte[] buffer, CsvTokenizer tokenizer) {
+        int start = tokenizer.getRecordStart();
+        int end = tokenizer.getRecordEnd();
+        if (end > start && buffer[end - 1] == '\r') {
+            end--;
+        }
+        return Arrays.copyOfRange(buffer, start, end);
+    }
+
+    private File writeRun(ArrayList<Row> rows) throws IOException {
+        Row[] sorted = rows.toArray(new Row[0]);
+        HybridMergeSort.sort(sorted, ROW_ORDER);
+
+        File run = createRunFile();
+        try (DataOutputStream out = openRun(run)) {
+            for (Row row : sorted) {
+                writeRow(out, row.key, row.bytes);
+            }
+        }
+        return run;
+    }
+
+    // step 3: merging
+
+    /**
+     * Reads one run file a row at a time.
+     */
+    private static class RunReader {
+        final DataInputStream in;
+        final int runNumber;    // runs hold earlier parts of the file first, used for ties
+        String key;
+        byte[] bytes;
+
+        RunReader(File run, int runNumber, int bufferSize) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), bufferSize));
+            this.runNumber = runNumber;
+        }
+
+        /**
+         * Reads the next row, false at the end of the run.
+         */
+        boolean next() throws IOException {
+            int keyLength;
+            try {
+                keyLength = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte[] keyBytes = new byte[keyLength];
+            in.readFully(keyBytes);
+            key = new String(keyBytes, StandardCharsets.UTF_8);
+            bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return true;
+        }
+    }
+
+    private static final Comparator<RunReader> READER_ORDER = (a, b) -> {
+        int result = a.key.compareTo(b.key);
+        return result != 0 ? result : Integer.compare(a.runNumber, b.runNumber);
+    };
+
+    /**
+     * Merges sorted runs, either into another run (key and row) or into the
+     * output (the rows as lines).
+     *
+     * @return Number of rows written
+     */
+    private long mergeRuns(List<File> runs, OutputStream out, boolean toRun) throws IOException {
+        int bufferSize = (int) Math.max(4096, Math.min(MERGE_BUFFER_SIZE, memoryLimit / (runs.size() + 1)));
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), READER_ORDER);
+        ArrayList<RunReader> readers = new ArrayList<>();
+
+        long written = 0;
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                RunReader reader = new RunReader(runs.get(i), i, bufferSize);
+                readers.add(reader);
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (toRun) {
+                    writeRow((DataOutputStream) out, reader.key, reader.bytes);
+                } else {
+                    out.write(reader.bytes);
+                    out.write('\n');
+                }
+                written++;
+
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+        return written;
+    }
+
+    // run files
+
+    private File createRunFile() throws IOException {
+        File run = File.createTempFile("employee-sort-", ".run", tempDirectory);
+        run.deleteOnExit();
+        return run;
+    }
+
+    private static DataOutputStream openRun(File run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), MERGE_BUFFER_SIZE));
+    }
+
+    private static void writeRow(DataOutputStream out, String key, byte[] bytes) throws IOException {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void deleteAll(ArrayList<File> runs) {
+        for (File run : runs) {
+            if (!run.delete() && run.exists()) {
+                System.out.println("Warning: could not delete temporary file " + run);
+            }
+        }
+        runs.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java CA_2.ExternalEmployeeSort input.csv output.csv [memory limit in MB]");
+            return;
+        }
+        long memoryLimit = args.length > 2 ? Long.parseLong(args[2]) << 20 : DEFAULT_MEMORY_LIMIT;
+
+        ExternalEmployeeSort sorter = new ExternalEmployeeSort(memoryLimit, null);
+        long start = System.nanoTime();
+        sorter.sort(args[0], args[1]);
+        sorter.displaySortStatistics();
+        System.out.println(String.format("Time: %.1f s", (System.nanoTime() - start) / 1_000_000_000.0));
+    }
+}
@@ -0,0 +1,325 @@
+package CA_2;
+
+import java.util.Comparator;
+
+/**
+ * HybridMergeSort is the sorting engine behind SortingAlgorithms.mergeSort.
+ *
+ * The textbook merge sort allocates two new arrays on every merge and
+ * recurses down to single elements. This version is still a stable merge
+ * sort, but:
+ * - it looks for runs that are already in order (or in reverse order) and
+ *   keeps them instead of splitting them up
+ * - runs shorter than MIN_RUN are filled up with binary insertion sort,
+ *   which is faster than merging for a few dozen elements
+ * - runs are merged through one buffer allocated once per sort
+ * - a merge is skipped when the two runs are already in order
+ *
+ * Already sorted input is one run: n - 1 comparisons and no buffer at all.
+ * The merges are done depth first, like the recursive version, so they
+ * stay within what is in the CPU cache for as long as possible.
+ *
+ * There is also a version for int arrays with an IntComparator, used to
+ * sort row numbers by key columns without boxing them into Integers.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class HybridMergeSort {
+
+    // runs shorter than this are extended with insertion sort
+    static final int MIN_RUN = 32;
+
+    /**
+     * Compares two ints by something other than their value, e.g. two row
+     * numbers by the keys stored for those rows.
+     */
+    public interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    private HybridMergeSort() {
+        // only static methods
+    }
+
+    /**
+     * Sorts the whole array in place. Stable: equal elements keep their order.
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> comparator) {
+        sort(array, 0, array.length, comparator);
+    }
+
+    /**
+     * Sorts array[from..to) in place. Stable: equal elements keep their order.
+     */
+    public static <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator) {
+        sort(array, from, to, comparator, null, from);
+    }
+
+    /**
+     * Sorts array[from..to) using buffer[from - bufferBase ..) as scratch
+     * space, so callers sorting many parts of one array can share a buffer.
+     * A null buffer is allocated here if a merge needs it.
+     */
+    static <T> void sort(T[] array, int from, int to, Comparator<? super T> comparator,
+                         Object[] buffer, int bufferBase) {
+        int length = to - from;
+        if (length < 2) {
+            return;
+        }
+
+        // every run is at least MIN_RUN long apart from the last one
+        int[] runStarts = new int[length / MIN_RUN + 2];
+        int runCount = 0;
+
+        int start = from;
+        while (start < to) {
+            int runEnd = findRunAndMakeAscending(array, start, to, comparator);
+            if (runEnd - start < MIN_RUN) {
+                int forcedEnd = Math.min(to, start + MIN_RUN);
+                binaryInsertionSort(array, start, runEnd, forcedEnd, comparator);
+                runEnd = forcedEnd;
+            }
+            runStarts[runCount++] = start;
+            start = runEnd;
+        }
+        runStarts[runCount] = to;
+
+        if (runCount > 1) {
+            if (buffer == null) {
+                buffer = new Object[length];
+                bufferBase = from;
+            }
+            mergeRuns(array, runStarts, 0, runCount, comparator, buffer, bufferBase);
+        }
+    }
+
+    /**
+     * Merges runs first..last-1 into one, left half then right half then
+     * the two together. Going depth first keeps each merge working on
+     * employees that were just touched, which matters far more than the
+     * comparisons once the array is bigger than the CPU cache.
+     */
+    private static <T> void mergeRuns(T[] array, int[] runStarts, int first, int last,
+                                      Comparator<? super T> comparator, Object[] buffer, int bufferBase) {
+        if (last - first < 2) {
+            return;
+        }
+        int middleRun = (first + last) >>> 1;
+        mergeRuns(array, runStarts, first, middleRun, comparator, buffer, bufferBase);
+        mergeRuns(array, runStarts, middleRun, last, comparator, buffer, bufferBase);
+
+        int middle = runStarts[middleRun];
+        // the two halves may already be in order, then there's nothing to do
+        if (comparator.compare(array[middle - 1], array[middle]) > 0) {
+            merge(array, runStarts[first], middle, runStarts[last], comparator, buffer, bufferBase);
+        }
+    }
+
+    /**
+     * Finds the end of the run starting at start. A strictly descending run
+     * is reversed (strictly, so equal elements never swap places).
+     *
+     * @return Index just after the run
+     */
+    static <T> int findRunAndMakeAscending(T[] array, int start, int to, Comparator<? super T> comparator) {
+        int end = start + 1;
+        if (end == to) {
+            return to;
+        }
+
+        if (comparator.compare(array[end], array[start]) < 0) {
+            end++;
+            while (end < to && comparator.compare(array[end], array[end - 1]) < 0) {
+                end++;
+            }
+            reverse(array, start, end);
+        } else {
+            end++;
+            while (end < to && comparator.compare(array[end], array[end - 1]) >= 0) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts array[low..high) when array[low..sortedEnd) is already sorted.
+     * Each element is put after any equal ones, which keeps it stable.
+     */
+    static <T> void binaryInsertionSort(T[] array, int low, int sortedEnd, int high,
+                                        Comparator<? super T> comparator) {
+        if (sortedEnd == low) {
+            sortedEnd++;
+        }
+        for (int i = sortedEnd; i < high; i++) {
+            T pivot = array[i];
+
+            // first position whose element is bigger than the pivot
+            int left = low;
+            int right = i;
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (comparator.compare(pivot, array[middle]) < 0) {
+                    right = middle;
+                } else {
+                    left = middle + 1;
+                }
+            }
+
+            System.arraycopy(array, left, array, left + 1, i - left);
+            array[left] = pivot;
+        }
+    }
+
+    /**
+     * Merges the sorted runs array[low..middle) and array[middle..high).
+     * Only the left run is copied out, to buffer[low - bufferBase ..);
+     * the right run is read where it is.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> void merge(T[] array, int low, int middle, int high,
+                          Comparator<? super T> comparator, Object[] buffer, int bufferBase) {
+        int bufferStart = low - bufferBase;
+        int bufferEnd = middle - bufferBase;
+        System.arraycopy(array, low, buffer, bufferStart, middle - low);
+
+        int i = bufferStart;
+        int j = middle;
+        int k = low;
+        while (i < bufferEnd && j < high) {
+            // take from the right only if strictly smaller, so ties stay in order
+            if (comparator.compare(array[j], (T) buffer[i]) < 0) {
+                array[k++] = array[j++];
+            } else {
+                array[k++] = (T) buffer[i++];
+            }
+        }
+
+        // what is left of the right run is already in place
+        System.arraycopy(buffer, i, array, k, bufferEnd - i);
+    }
+
+    // the same sort for int arrays, see the Object versions above for comments
+
+    /**
+     * Sorts the whole int array in place using the comparator. Stable: ints
+     * the comparator finds equal keep their order.
+     */
+    public static void sort(int[] array, IntComparator comparator) {
+        int length = array.length;
+        if (length < 2) {
+            return;
+        }
+
+        int[] runStarts = new int[length / MIN_RUN + 2];
+        int runCount = 0;
+
+        int start = 0;
+        while (start < length) {
+            int runEnd = findRunAndMakeAscending(array, start, length, comparator);
+            if (runEnd - start < MIN_RUN) {
+                int forcedEnd = Math.min(length, start + MIN_RUN);
+                binaryInsertionSort(array, start, runEnd, forcedEnd, comparator);
+                runEnd = forcedEnd;
+            }
+            runStarts[runCount++] = start;
+            start = runEnd;
+        }
+        runStarts[runCount] = length;
+
+        if (runCount > 1) {
+            mergeRuns(array, runStarts, 0, runCount, comparator, new int[length]);
+        }
+    }
+
+    private static void mergeRuns(int[] array, int[] runStarts, int first, int last,
+                                  IntComparator comparator, int[] buffer) {
+        if (last - first < 2) {
+            return;
+        }
+        int middleRun = (first + last) >>> 1;
+        mergeRuns(array, runStarts, first, middleRun, comparator, buffer);
+        mergeRuns(array, runStarts, middleRun, last, comparator, buffer);
+
+        int middle = runStarts[middleRun];
+        if (comparator.compare(array[middle - 1], array[middle]) > 0) {
+            merge(array, runStarts[first], middle, runStarts[last], comparator, buffer);
+        }
+    }
+
+    private static int findRunAndMakeAscending(int[] array, int start, int to, IntComparator comparator) {
+        int end = start + 1;
+        if (end == to) {
+            return to;
+        }
+
+        if (comparator.compare(array[end], array[start]) < 0) {
+            end++;
+            while (end < to && comparator.compare(array[end], array[end - 1]) < 0) {
+                end++;
+            }
+            for (int i = start, j = end - 1; i < j; i++, j--) {
+                int swap = array[i];
+                array[i] = array[j];
+                array[j] = swap;
+            }
+        } else {
+            end++;
+            while (end < to && comparator.compare(array[end], array[end - 1]) >= 0) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    private static void binaryInsertionSort(int[] array, int low, int sortedEnd, int high,
+                                            IntComparator comparator) {
+        if (sortedEnd == low) {
+            sortedEnd++;
+        }
+        for (int i = sortedEnd; i < high; i++) {
+            int pivot = array[i];
+
+            int left = low;
+            int right = i;
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (comparator.compare(pivot, array[middle]) < 0) {
+                    right = middle;
+                } else {
+                    left = middle + 1;
+                }
+            }
+
+            System.arraycopy(array, left, array, left + 1, i - left);
+            array[left] = pivot;
+        }
+    }
+
+    private static void merge(int[] array, int low, int middle, int high,
+                              IntComparator comparator, int[] buffer) {
+        System.arraycopy(array, low, buffer, low, middle - low);
+
+        int i = low;
+        int j = middle;
+        int k = low;
+        while (i < middle && j < high) {
+            if (comparator.compare(array[j], buffer[i]) < 0) {
+                array[k++] = array[j++];
+            } else {
+                array[k++] = buffer[i++];
+            }
+        }
+
+        System.arraycopy(buffer, i, array, k, middle - i);
+    }
+
+    private static void reverse(Object[] array, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            Object swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+}
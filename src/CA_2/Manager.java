@@ -1,6 +1,7 @@
 package CA_2;
 
 import java.util.ArrayList;
+import java.util.Set;
 
 /**
  * Manager class is the parent class for all manager types.
@@ -59,6 +60,24 @@ public abstract class Manager extends Employee {
         return true;
     }
 
+    /**
+     * Adds an employee that is known not to be in this team yet.
+     * Skips the contains() check, which made bulk assignment quadratic.
+     */
+    void addNewEmployee(Employee employee) {
+        managedEmployees.add(employee);
+        employee.setManager(this);
+        employeeCount = managedEmployees.size();
+    }
+
+    /**
+     * Removes a batch of employees from this team in one pass over the list.
+     */
+    void removeEmployees(Set<Employee> removed) {
+        managedEmployees.removeIf(removed::contains);
+        employeeCount = managedEmployees.size();
+    }
+
     public int getEmployeeCount() { return employeeCount; }
     public ManagerType getManagerType() { return managerType; }
     public String getManagerTypeString() { return managerType != null ? managerType.getDisplayName() : "Unknown"; }
@@ -71,7 +90,7 @@ public abstract class Manager extends Employee {
         System.out.println("Name: " + getFullName());
         System.out.println("Manager Type: " + getManagerTypeString());
         System.out.println("Email: " + email);
-        System.out.println("Salary: " + salary);
+        System.out.println("Salary: " + getSalary());
         System.out.println("Job Title: " + jobTitle);
         System.out.println("Employees Managed: " + employeeCount);
         System.out.println("Department: " + (department != null ? department.getDepartmentName() : "None"));
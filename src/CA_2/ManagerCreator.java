@@ -1,6 +1,8 @@
 package CA_2;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 
 /**
  * ManagerCreator handles all manager creation and setup logic.
@@ -43,7 +45,7 @@ public class ManagerCreator {
         }
 
         // get or create Senior Management department for these managers
-        Department seniorMgmt = findOrCreateDepartment("Senior Management");
+        Department seniorMgmt = Department.findOrCreate(departmentList, "Senior Management");
 
         // create each manager if they don't exist
         if (!hasPrincipal) {
@@ -206,16 +208,38 @@ public class ManagerCreator {
      * Tries to match by department first.
      */
     public void assignManagersToEmployees() {
-        for (Employee emp : employeeList) {
+        assignManagers(employeeList);
+    }
+
+    /**
+     * Assigns managers to the given employees who don't have one yet,
+     * so a reload only has to look at the employees it changed.
+     */
+    public void assignManagers(List<Employee> employees) {
+        // work out the manager for each department once, instead of
+        // scanning the whole manager list for every employee
+        HashMap<Department, Manager> managerByDepartment = new HashMap<>();
+        for (Manager manager : managerList) {
+            if (manager.getDepartment() != null && !managerByDepartment.containsKey(manager.getDepartment())) {
+                managerByDepartment.put(manager.getDepartment(), manager);
+            }
+        }
+        Manager fallbackManager = managerList.isEmpty() ? null : managerList.get(0);
+
+        for (Employee emp : employees) {
             // skip if already a manager or already has a manager
             if (emp instanceof Manager || emp.getManager() != null) {
                 continue;
             }
 
-            // find a manager in same department
-            Manager assignedManager = findManagerForEmployee(emp);
+            // find a manager in same department, same rules as findManagerForEmployee
+            // employees without a manager can't be in any team yet
+            Manager assignedManager = managerByDepartment.get(emp.getDepartment());
+            if (assignedManager == null) {
+                assignedManager = fallbackManager;
+            }
             if (assignedManager != null) {
-                assignedManager.addEmployee(emp);
+                assignedManager.addNewEmployee(emp);
             }
         }
     }
@@ -245,25 +269,6 @@ public class ManagerCreator {
 
     // helper methods that access the lists
 
-    private Department findOrCreateDepartment(String departmentName) {
-        // check if department already exists
-        for (Department dept : departmentList) {
-            if (dept.getDepartmentName().equalsIgnoreCase(departmentName)) {
-                return dept;
-            }
-        }
-
-        // doesn't exist, create new one
-        DepartmentType deptType = DepartmentType.fromDisplayName(departmentName);
-        if (deptType == null) {
-            deptType = DepartmentType.COMPUTER_SCIENCE;
-        }
-
-        Department newDept = new AcademicDepartment(departmentName, deptType);
-        departmentList.add(newDept);
-        return newDept;
-    }
-
     private Employee findEmployeeByEmail(String email) {
         if (email == null) return null;
 
@@ -16,7 +16,8 @@ public enum MenuOption {
     DISPLAY_HIERARCHY(6, "Display Organizational Hierarchy"),
     DEPARTMENT_STATS(7, "Department Statistics Report"),
     CHANGE_FILE(8, "Change Data File"),
-    EXIT(9, "Exit");
+    EXIT(9, "Exit"),
+    FOLLOW_FILE(10, "Follow Data File (on/off)");
 
     private final int optionNumber;
     private final String displayName;
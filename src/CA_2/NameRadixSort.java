@@ -0,0 +1,182 @@
+package CA_2;
+
+import java.util.Arrays;
+
+/**
+ * NameRadixSort sorts employees by name with an MSD (most significant
+ * digit first) radix sort instead of comparisons.
+ *
+ * A merge sort compares whole names over and over, and names share long
+ * prefixes ("ro..." for Rosenberg, Rodriguez...), so most of each
+ * String.compareTo is spent on characters that were already equal last
+ * time. The radix sort looks at every character of a name key
+ * (EmployeeNameKey) only a few times: it puts the employees into 256
+ * buckets by the first byte, then sorts each bucket by the next byte, and
+ * so on. Each char is read as two bytes, high byte first, which is the
+ * same order String.compareTo uses. Keys that end go first, so "ann" comes
+ * before "anna".
+ *
+ * - Buckets of up to INSERTION_SORT_SIZE employees are finished with
+ *   insertion sort, which is faster than more passes for so few.
+ * - When every key in a range has the same byte (names are mostly plain
+ *   letters, so the high byte is nearly always 0) nothing is moved and it
+ *   goes straight to the next byte.
+ * - Buckets are filled in order, so equal names keep their order: it is
+ *   stable and gives exactly the same order as mergeSort.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class NameRadixSort {
+
+    // buckets this small are insertion sorted
+    static final int INSERTION_SORT_SIZE = 32;
+
+    // 256 byte values plus one bucket (0) for keys that have ended
+    private static final int BUCKETS = 257;
+
+    private NameRadixSort() {
+        // only static methods
+    }
+
+    /**
+     * Sorts employees by name in place. Null entries are moved to the end.
+     */
+    public static void sort(Employee[] employees) {
+        // nulls go last, like in mergeSort
+        int count = 0;
+        for (int i = 0; i < employees.length; i++) {
+            if (employees[i] != null) {
+                employees[count++] = employees[i];
+            }
+        }
+        for (int i = count; i < employees.length; i++) {
+            employees[i] = null;
+        }
+        if (count < 2) {
+            return;
+        }
+
+        // the keys are read over and over, so keep them next to each other
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = employees[i].getNameKey();
+        }
+
+        sort(employees, keys, 0, count, 0, new Employee[count], new String[count]);
+    }
+
+    /**
+     * Sorts employees[from..to), whose keys all have the same first
+     * digit bytes, by byte digit onwards.
+     */
+    private static void sort(Employee[] employees, String[] keys, int from, int to, int digit,
+                             Employee[] employeeBuffer, String[] keyBuffer) {
+        int[] counts = null;
+
+        while (true) {
+            if (to - from <= INSERTION_SORT_SIZE) {
+                insertionSort(employees, keys, from, to, digit / 2);
+                return;
+            }
+
+            if (counts == null) {
+                counts = new int[BUCKETS + 1];
+            } else {
+                Arrays.fill(counts, 0);
+            }
+            for (int i = from; i < to; i++) {
+                counts[bucketOf(keys[i], digit) + 1]++;
+            }
+
+            // all in the same bucket: already in order for this byte
+            int sameBucket = -1;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (counts[bucket + 1] == to - from) {
+                    sameBucket = bucket;
+                }
+            }
+            if (sameBucket == 0) {
+                return;     // every key has ended, they are all equal
+            }
+            if (sameBucket > 0) {
+                digit++;
+                continue;
+            }
+            break;
+        }
+
+        // counts[b] becomes where bucket b starts
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket + 1] += counts[bucket];
+        }
+
+        // move into the buffers bucket by bucket, keeping the order inside each one
+        for (int i = from; i < to; i++) {
+            int position = counts[bucketOf(keys[i], digit)]++;
+            employeeBuffer[position] = employees[i];
+            keyBuffer[position] = keys[i];
+        }
+        System.arraycopy(employeeBuffer, 0, employees, from, to - from);
+        System.arraycopy(keyBuffer, 0, keys, from, to - from);
+
+        // counts[b] is now where bucket b ends. Keys that ended (bucket 0)
+        // are equal and stay as they are; the others go on with the next byte
+        for (int bucket = 1; bucket < BUCKETS; bucket++) {
+            int start = from + counts[bucket - 1];
+            int end = from + counts[bucket];
+            if (end - start > 1) {
+                sort(employees, keys, start, end, digit + 1, employeeBuffer, keyBuffer);
+            }
+        }
+    }
+
+    /**
+     * Bucket of a key for a byte: 0 if the key has ended, otherwise the byte + 1.
+     * Byte 2i is the high byte of char i, byte 2i + 1 the low byte.
+     */
+    private static int bucketOf(String key, int digit) {
+        int index = digit >>> 1;
+        if (index >= key.length()) {
+            return 0;
+        }
+        char c = key.charAt(index);
+        return ((digit & 1) == 0 ? c >>> 8 : c & 0xFF) + 1;
+    }
+
+    /**
+     * Stable insertion sort of employees[from..to) by key. The keys are
+     * already known to be equal before char start.
+     */
+    private static void insertionSort(Employee[] employees, String[] keys, int from, int to, int start) {
+        for (int i = from + 1; i < to; i++) {
+            Employee employee = employees[i];
+            String key = keys[i];
+            int j = i - 1;
+            while (j >= from && compareFrom(keys[j], key, start) > 0) {
+                employees[j + 1] = employees[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            employees[j + 1] = employee;
+            keys[j + 1] = key;
+        }
+    }
+
+    /**
+     * Same as key1.compareTo(key2) when the first start chars are equal.
+     */
+    private static int compareFrom(String key1, String key2, int start) {
+        int length1 = key1.length();
+        int length2 = key2.length();
+        int limit = Math.min(length1, length2);
+        for (int i = start; i < limit; i++) {
+            char c1 = key1.charAt(i);
+            char c2 = key2.charAt(i);
+            if (c1 != c2) {
+                return c1 - c2;
+            }
+        }
+        return length1 - length2;
+    }
+}
@@ -0,0 +1,160 @@
+package CA_2;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * PackedNameScan finds the rows whose name contains a search term by
+ * scanning the packed lowercase names of EmployeeColumnStore, one byte
+ * buffer for all employees, instead of going through the Employee objects.
+ *
+ * It looks for the first byte of the term and only compares the whole
+ * term where that byte is. The WORD kernel looks at 8 bytes at a time
+ * (SWAR, "SIMD within a register"): a long read from the buffer is XORed
+ * with the first byte repeated 8 times, so the bytes that match become 0,
+ * and
+ *
+ *   (x - 0x0101010101010101) &amp; ~x &amp; 0x8080808080808080
+ *
+ * has the top bit set in every 0 byte (and maybe in some bytes just above
+ * one, which the comparison weeds out). A word without the first byte is
+ * skipped with a handful of instructions. The BYTE kernel is the plain
+ * loop, one byte at a time, and finds the same rows.
+ *
+ * A match is turned into a row with the offsets table, which is walked
+ * forward as the scan goes, and a row that matched is skipped to its end.
+ * The names are UTF-8, so a term can only match at the start of a char
+ * and the result is the same as String.contains.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class PackedNameScan {
+
+    public enum Kernel {
+        /** 8 bytes per step in a long */
+        WORD,
+        /** one byte per step */
+        BYTE
+    }
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private PackedNameScan() {
+        // only static methods
+    }
+
+    /**
+     * Rows whose name contains the term, in row order.
+     *
+     * @param names    Packed names, row i is names[offsets[i] .. offsets[i + 1])
+     * @param offsets  Where every row starts, plus where the last one ends
+     * @param rowCount Number of rows
+     * @param term     Lowercase search term as UTF-8, not empty
+     * @param kernel   How to look for the first byte of the term
+     */
+    public static int[] findRows(byte[] names, int[] offsets, int rowCount, byte[] term, Kernel kernel) {
+        Rows rows = new Rows();
+        int end = offsets[rowCount];
+        if (term.length == 0 || term.length > end) {
+            return rows.toArray();
+        }
+        if (kernel == Kernel.WORD) {
+            scanWords(names, offsets, end, term, rows);
+        } else {
+            scanBytes(names, offsets, end, term, 0, 0, rows);
+        }
+        return rows.toArray();
+    }
+
+    private static void scanWords(byte[] names, int[] offsets, int end, byte[] term, Rows rows) {
+        // little endian, so the lowest byte of the long is the first one in the buffer
+        ByteBuffer buffer = ByteBuffer.wrap(names).order(ByteOrder.LITTLE_ENDIAN);
+        long pattern = (term[0] & 0xFFL) * ONES;
+        int lastStart = end - term.length;
+        int position = 0;
+        int row = 0;
+
+        words:
+        while (position + 8 <= end) {
+            long x = buffer.getLong(position) ^ pattern;
+            long found = (x - ONES) & ~x & HIGH_BITS;
+            while (found != 0) {
+                int candidate = position + (Long.numberOfTrailingZeros(found) >>> 3);
+                found &= found - 1;
+                if (candidate > lastStart) {
+                    return;     // too close to the end for the whole term
+                }
+                while (offsets[row + 1] <= candidate) {
+                    row++;
+                }
+                if (matchesAt(names, candidate, offsets[row + 1], term)) {
+                    rows.add(row);
+                    // go on after this row, the rest of the word is in it
+                    position = offsets[row + 1];
+                    continue words;
+                }
+            }
+            position += 8;
+        }
+
+        // the last few bytes, one at a time
+        scanBytes(names, offsets, end, term, position, row, rows);
+    }
+
+    private static void scanBytes(byte[] names, int[] offsets, int end, byte[] term,
+                                  int position, int row, Rows rows) {
+        byte first = term[0];
+        int lastStart = end - term.length;
+        while (position <= lastStart) {
+            if (names[position] == first) {
+                while (offsets[row + 1] <= position) {
+                    row++;
+                }
+                if (matchesAt(names, position, offsets[row + 1], term)) {
+                    rows.add(row);
+                    position = offsets[row + 1];
+                    continue;
+                }
+            }
+            position++;
+        }
+    }
+
+    /**
+     * True if the term is at position and ends before rowEnd. The first
+     * byte is checked again, the word kernel can flag a byte that isn't it.
+     */
+    private static boolean matchesAt(byte[] names, int position, int rowEnd, byte[] term) {
+        if (position + term.length > rowEnd) {
+            return false;
+        }
+        for (int i = 0; i < term.length; i++) {
+            if (names[position + i] != term[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Growing array of row numbers.
+     */
+    private static class Rows {
+        private int[] rows = new int[16];
+        private int count;
+
+        void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(rows, count);
+        }
+    }
+}
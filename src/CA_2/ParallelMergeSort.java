@@ -0,0 +1,230 @@
+package CA_2;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelMergeSort sorts big arrays on a ForkJoinPool.
+ *
+ * The array is split in halves that are sorted as separate tasks until a
+ * part is smaller than the threshold, which is then sorted by
+ * HybridMergeSort. The halves are merged back in parallel too: the longer
+ * half is cut in the middle, a binary search finds where that element
+ * goes in the other half, and the two pairs of pieces are merged by
+ * separate tasks into their own part of the output. Without that the last
+ * merge would run on one core and limit the speedup.
+ *
+ * Stable like the sequential sort, equal elements keep their order.
+ * One buffer the size of the array is shared by all tasks.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class ParallelMergeSort {
+
+    // parts smaller than this are sorted or merged on one thread
+    public static final int DEFAULT_THRESHOLD = 1 << 13;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Uses the common pool (one worker per core) and the default threshold.
+     */
+    public ParallelMergeSort() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Uses its own pool with the given number of worker threads.
+     */
+    public ParallelMergeSort(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism), threshold);
+    }
+
+    /**
+     * @param pool      Pool to run the tasks on
+     * @param threshold Parts up to this size are handled by one thread
+     */
+    public ParallelMergeSort(ForkJoinPool pool, int threshold) {
+        if (threshold < 2) {
+            throw new IllegalArgumentException("Threshold must be at least 2");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sorts the array in place. Stable: equal elements keep their order.
+     */
+    public <T> void sort(T[] array, Comparator<? super T> comparator) {
+        if (array.length <= threshold) {
+            HybridMergeSort.sort(array, comparator);
+            return;
+        }
+        Object[] buffer = new Object[array.length];
+        pool.invoke(new SortTask<>(array, buffer, 0, array.length, comparator));
+    }
+
+    /**
+     * Sorts array[from..to): the halves as separate tasks, then merges them.
+     */
+    private class SortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] array;
+        private final Object[] buffer;
+        private final int from;
+        private final int to;
+        private final Comparator<? super T> comparator;
+
+        SortTask(T[] array, Object[] buffer, int from, int to, Comparator<? super T> comparator) {
+            this.array = array;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.comparator = comparator;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                HybridMergeSort.sort(array, from, to, comparator, buffer, 0);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask<>(array, buffer, from, middle, comparator),
+                    new SortTask<>(array, buffer, middle, to, comparator));
+
+            // already in order, e.g. sorted input
+            if (comparator.compare(array[middle - 1], array[middle]) <= 0) {
+                return;
+            }
+
+            // both halves go to the buffer, then get merged back into the array
+            System.arraycopy(array, from, buffer, from, to - from);
+            new MergeTask<>(buffer, from, middle, middle, to, array, from, comparator).compute();
+        }
+    }
+
+    /**
+     * Merges source[leftFrom..leftTo) and source[rightFrom..rightTo) into
+     * target starting at targetFrom.
+     */
+    private class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] source;
+        private final int leftFrom;
+        private final int leftTo;
+        private final int rightFrom;
+        private final int rightTo;
+        private final T[] target;
+        private final int targetFrom;
+        private final Comparator<? super T> comparator;
+
+        MergeTask(Object[] source, int leftFrom, int leftTo, int rightFrom, int rightTo,
+                  T[] target, int targetFrom, Comparator<? super T> comparator) {
+            this.source = source;
+            this.leftFrom = leftFrom;
+            this.leftTo = leftTo;
+            this.rightFrom = rightFrom;
+            this.rightTo = rightTo;
+            this.target = target;
+            this.targetFrom = targetFrom;
+            this.comparator = comparator;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void compute() {
+            int leftLength = leftTo - leftFrom;
+            int rightLength = rightTo - rightFrom;
+            if (leftLength + rightLength <= threshold) {
+                mergeSequentially();
+                return;
+            }
+
+            // cut the longer run in the middle and find where that element goes in
+            // the other one. Ties must keep left elements first, so a left pivot
+            // goes before equal right elements and a right pivot after equal left ones.
+            int leftSplit;
+            int rightSplit;
+            if (leftLength >= rightLength) {
+                leftSplit = (leftFrom + leftTo) >>> 1;
+                rightSplit = lowerBound(rightFrom, rightTo, (T) source[leftSplit]);
+            } else {
+                rightSplit = (rightFrom + rightTo) >>> 1;
+                leftSplit = upperBound(leftFrom, leftTo, (T) source[rightSplit]);
+            }
+
+            int secondTargetFrom = targetFrom + (leftSplit - leftFrom) + (rightSplit - rightFrom);
+            invokeAll(new MergeTask<>(source, leftFrom, leftSplit, rightFrom, rightSplit,
+                            target, targetFrom, comparator),
+                    new MergeTask<>(source, leftSplit, leftTo, rightSplit, rightTo,
+                            target, secondTargetFrom, comparator));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void mergeSequentially() {
+            int i = leftFrom;
+            int j = rightFrom;
+            int k = targetFrom;
+            while (i < leftTo && j < rightTo) {
+                if (comparator.compare((T) source[j], (T) source[i]) < 0) {
+                    target[k++] = (T) source[j++];
+                } else {
+                    target[k++] = (T) source[i++];
+                }
+            }
+            while (i < leftTo) {
+                target[k++] = (T) source[i++];
+            }
+            while (j < rightTo) {
+                target[k++] = (T) source[j++];
+            }
+        }
+
+        /**
+         * First index in source[from..to) whose element is not smaller than key.
+         */
+        @SuppressWarnings("unchecked")
+        private int lowerBound(int from, int to, T key) {
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (comparator.compare((T) source[middle], key) < 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+
+        /**
+         * First index in source[from..to) whose element is bigger than key.
+         */
+        @SuppressWarnings("unchecked")
+        private int upperBound(int from, int to, T key) {
+            while (from < to) {
+                int middle = (from + to) >>> 1;
+                if (comparator.compare((T) source[middle], key) <= 0) {
+                    from = middle + 1;
+                } else {
+                    to = middle;
+                }
+            }
+            return from;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package CA_2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelNameSearch runs the linear name search over a big array on a
+ * ForkJoinPool.
+ *
+ * The array is split in halves as separate tasks until a part is smaller
+ * than the threshold, which is scanned by SearchAlgorithms.scan in one
+ * pass. Each task returns its own matches and the two halves are joined
+ * left then right, so the results are in the same order as a scan of the
+ * whole array. The tasks only read the employees and their name keys.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class ParallelNameSearch {
+
+    // parts smaller than this are scanned on one thread
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Uses the common pool (one worker per core) and the default threshold.
+     */
+    public ParallelNameSearch() {
+        this(ForkJoinPool.commonPool(), DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Uses its own pool with the given number of worker threads.
+     */
+    public ParallelNameSearch(int parallelism, int threshold) {
+        this(new ForkJoinPool(parallelism), threshold);
+    }
+
+    /**
+     * @param pool      Pool to run the tasks on
+     * @param threshold Parts up to this size are scanned by one thread
+     */
+    public ParallelNameSearch(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Threshold must be at least 1");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Employees whose first name, last name or full name contains the
+     * search term, in array order.
+     *
+     * @param searchTerm Lowercase, trimmed search term
+     */
+    public Employee[] search(Employee[] employees, String searchTerm) {
+        if (employees.length <= threshold) {
+            return SearchAlgorithms.scan(employees, 0, employees.length, searchTerm);
+        }
+        return pool.invoke(new SearchTask(employees, 0, employees.length, searchTerm, threshold));
+    }
+
+    /**
+     * Searches employees[from..to): the halves as separate tasks, then joins
+     * their matches.
+     */
+    private static class SearchTask extends RecursiveTask<Employee[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Employee[] employees;
+        private final int from;
+        private final int to;
+        private final String searchTerm;
+        private final int threshold;
+
+        SearchTask(Employee[] employees, int from, int to, String searchTerm, int threshold) {
+            this.employees = employees;
+            this.from = from;
+            this.to = to;
+            this.searchTerm = searchTerm;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Employee[] compute() {
+            if (to - from <= threshold) {
+                return SearchAlgorithms.scan(employees, from, to, searchTerm);
+            }
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(employees, from, middle, searchTerm, threshold);
+            SearchTask right = new SearchTask(employees, middle, to, searchTerm, threshold);
+            left.fork();
+            Employee[] rightMatches = right.compute();
+            Employee[] leftMatches = left.join();
+
+            Employee[] matches = new Employee[leftMatches.length + rightMatches.length];
+            System.arraycopy(leftMatches, 0, matches, 0, leftMatches.length);
+            System.arraycopy(rightMatches, 0, matches, leftMatches.length, rightMatches.length);
+            return matches;
+        }
+    }
+}
@@ -123,7 +123,7 @@ public class RandomEmployeeGenerator {
             newEmployee.setRandomlyGenerated(true);
 
             // assign to department
-            Department dept = findOrCreateDepartment(randomDeptType.getDisplayName());
+            Department dept = Department.findOrCreate(departmentList, randomDeptType.getDisplayName());
             newEmployee.setDepartment(dept);
             dept.addStaff(newEmployee);
 
@@ -149,24 +149,4 @@ public class RandomEmployeeGenerator {
         System.out.println("Total employees in system: " + employeeList.size());
         System.out.println("========================================\n");
     }
-
-    // helper method
-    private Department findOrCreateDepartment(String departmentName) {
-        // check if department already exists
-        for (Department dept : departmentList) {
-            if (dept.getDepartmentName().equalsIgnoreCase(departmentName)) {
-                return dept;
-            }
-        }
-
-        // doesn't exist, create new one
-        DepartmentType deptType = DepartmentType.fromDisplayName(departmentName);
-        if (deptType == null) {
-            deptType = DepartmentType.COMPUTER_SCIENCE;
-        }
-
-        Department newDept = new AcademicDepartment(departmentName, deptType);
-        departmentList.add(newDept);
-        return newDept;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,77 @@
+package CA_2;
+
+/**
+ * RowHashTable counts how many times each row hash appears, so a reload can
+ * tick off the rows that are still in the data file.
+ *
+ * Hashes are kept in a plain long array with linear probing instead of a
+ * HashMap, which would box a Long for each of a million rows.
+ * Once all hashes are added, contains() can be called from the parallel
+ * chunk tasks while a single thread claims rows.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class RowHashTable {
+
+    private final long[] hashes;
+    private final int[] counts;
+    private final int mask;
+
+    /**
+     * @param expectedRows How many hashes will be added, sizes the table
+     */
+    public RowHashTable(int expectedRows) {
+        // keep the table at most half full so probe runs stay short
+        int capacity = Integer.highestOneBit(Math.max(16, expectedRows * 2 - 1)) << 1;
+        this.hashes = new long[capacity];
+        this.counts = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Adds one occurrence of a hash.
+     *
+     * @param hash Row hash, must not be 0
+     */
+    public void add(long hash) {
+        int slot = findSlot(hash);
+        hashes[slot] = hash;
+        counts[slot]++;
+    }
+
+    /**
+     * True if the hash was ever added, even if all its occurrences are claimed.
+     * Only reads the hash array, so it is safe to call from several threads.
+     */
+    public boolean contains(long hash) {
+        return hashes[findSlot(hash)] == hash;
+    }
+
+    /**
+     * Takes one occurrence of a hash away, if any are left.
+     *
+     * @param hash Row hash, must not be 0
+     * @return true if an occurrence was claimed
+     */
+    public boolean claim(long hash) {
+        int slot = findSlot(hash);
+        if (hashes[slot] != hash || counts[slot] == 0) {
+            return false;
+        }
+        counts[slot]--;
+        return true;
+    }
+
+    /**
+     * Returns the slot holding the hash, or the empty slot where it would go.
+     */
+    private int findSlot(long hash) {
+        // fold the high bits in before masking
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (hashes[slot] != 0 && hashes[slot] != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,71 @@
+package CA_2;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * SalaryCents converts between the salary shown to the user (61000.5)
+ * and the way Employee stores it: a long number of cents (6100050).
+ *
+ * Cents add up and compare exactly, so department totals do not pick up
+ * floating point rounding, and sorting or range checks compare longs.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class SalaryCents {
+
+    private SalaryCents() {
+        // only static methods
+    }
+
+    /**
+     * Rounds an amount to the nearest cent.
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    /**
+     * The amount as a double, for display.
+     */
+    public static double toDouble(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Parses an amount typed by the user, like "61000" or "61000.50",
+     * straight into cents without going through a double. A third decimal
+     * rounds half up like the data file reader (CsvTokenizer.getCents).
+     *
+     * @throws NumberFormatException if the text is not an amount, or too big to store
+     */
+    public static long parse(String text) {
+        String amount = text.trim();
+        try {
+            return new BigDecimal(amount).setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException("\"" + amount + "\" is not an amount");
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("\"" + amount + "\" is too big for a salary");
+        }
+    }
+
+    /**
+     * Formats cents with exactly two decimals, like the data file: "61000.50".
+     */
+    public static String format(long cents) {
+        StringBuilder text = new StringBuilder(16);
+        if (cents < 0) {
+            text.append('-');
+        }
+        // Math.abs would overflow on Long.MIN_VALUE, go through the negative side
+        long whole = -(Math.abs(cents / 100));
+        int fraction = (int) Math.abs(cents % 100);
+        text.append(-whole).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction).toString();
+    }
+}
@@ -1,7 +1,6 @@
 package CA_2;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Scanner;
@@ -11,24 +10,62 @@ import java.util.Scanner;
  * Provides a menu-based interface for sorting, searching, and managing employees.
  *
  * Uses helper classes to keep code organized:
+ * - EmployeeFileLoader: reads the data file
+ * - EmployeeBackgroundLoader: reads a big data file while the menu is in use
+ * - EmployeeFileReloader: applies only the changes when a file is loaded again
+ * - EmployeeFileFollower: picks up rows appended to the file while running
+ * - EmployeeSnapshot: saves and restores the loaded data
+ * - EmployeeWriteAheadLog: keeps employees added while running
  * - ManagerCreator: handles manager creation
  * - RandomEmployeeGenerator: generates random employees
  * - DepartmentReporter: displays department statistics
+ * - EmployeeIndexRegistry: keeps the column store and other indexes up to date
  *
  * @author Rafael Valentim Ribeiro
  * @version 1.0
  */
 public class SchoolManagementSystem {
 
+    // how often the employee log forces new records to disk
+    private static final EmployeeWriteAheadLog.FsyncPolicy WAL_FSYNC_POLICY =
+            EmployeeWriteAheadLog.FsyncPolicy.INTERVAL;
+
+    // how long startup waits for the file before showing the menu anyway
+    private static final long STARTUP_LOAD_WAIT_MS = 500;
+
+    // most names listed by a "ros*" prefix search or as typo suggestions
+    private static final int PREFIX_SEARCH_LIMIT = 20;
+
+    // how many search results are remembered: terms, and employees in all of them
+    private static final int SEARCH_CACHE_TERMS = 64;
+    private static final int SEARCH_CACHE_EMPLOYEES = 1_000_000;
+
     private ArrayList<Employee> employeeList;
     private ArrayList<Manager> managerList;
     private ArrayList<Department> departmentList;
     private Scanner scanner;
+    private String currentFilename;
+
+    // end of the data file rows that are loaded, where following starts
+    private long loadedFileSize;
 
     // helper classes to organize code
+    private EmployeeFileLoader fileLoader;
+    private EmployeeBackgroundLoader backgroundLoader;
+    private EmployeeFileReloader fileReloader;
+    private EmployeeFileFollower fileFollower;
+    private EmployeeSnapshot snapshot;
+    private EmployeeWriteAheadLog writeAheadLog;
     private ManagerCreator managerCreator;
     private RandomEmployeeGenerator randomGenerator;
     private DepartmentReporter departmentReporter;
+    private EmployeeIndexRegistry employeeIndexes;
+    private EmployeeColumnStore columnStore;
+    private EmployeeNameIndex nameIndex;
+    private EmployeeTrigramIndex trigramIndex;
+    private EmployeeNameTrie nameTrie;
+    private EmployeeFuzzyIndex fuzzyIndex;
+    private EmployeeSearchCache searchCache;
 
     public SchoolManagementSystem() {
         this.employeeList = new ArrayList<>();
@@ -37,9 +74,28 @@ public class SchoolManagementSystem {
         this.scanner = new Scanner(System.in);
 
         // create helper classes
+        this.fileLoader = new EmployeeFileLoader(employeeList, managerList, departmentList);
+        this.backgroundLoader = new EmployeeBackgroundLoader(fileLoader);
+        this.snapshot = new EmployeeSnapshot(employeeList, managerList, departmentList);
         this.managerCreator = new ManagerCreator(employeeList, managerList, departmentList);
+        this.fileReloader = new EmployeeFileReloader(employeeList, managerList, departmentList,
+                fileLoader, managerCreator);
+        this.fileFollower = new EmployeeFileFollower(departmentList, fileLoader, managerCreator);
         this.randomGenerator = new RandomEmployeeGenerator(employeeList, managerList, departmentList, managerCreator);
-        this.departmentReporter = new DepartmentReporter(employeeList, departmentList);
+        this.columnStore = new EmployeeColumnStore();
+        this.employeeIndexes = new EmployeeIndexRegistry(employeeList);
+        this.employeeIndexes.register(columnStore);
+        this.nameIndex = new EmployeeNameIndex();
+        this.employeeIndexes.register(nameIndex);
+        this.trigramIndex = new EmployeeTrigramIndex();
+        this.employeeIndexes.register(trigramIndex);
+        this.nameTrie = new EmployeeNameTrie();
+        this.employeeIndexes.register(nameTrie);
+        this.fuzzyIndex = new EmployeeFuzzyIndex();
+        this.employeeIndexes.register(fuzzyIndex);
+        this.searchCache = new EmployeeSearchCache(employeeList, employeeIndexes, trigramIndex, columnStore,
+                SEARCH_CACHE_TERMS, SEARCH_CACHE_EMPLOYEES);
+        this.departmentReporter = new DepartmentReporter(employeeList, departmentList, columnStore);
     }
 
     /**
@@ -63,6 +119,7 @@ public class SchoolManagementSystem {
 
         // Prompt user for filename and load data
         String filename = promptForFilename();
+        currentFilename = filename;
         if (!loadEmployeeDataFromFile(filename)) {
             System.out.println("Warning: Could not load data from file.");
             System.out.println("You can still use the system to add employees manually.");
@@ -71,6 +128,10 @@ public class SchoolManagementSystem {
         // Main application loop - continues until user chooses to exit
         boolean running = true;
         while (running) {
+            if (backgroundLoader.isLoading()) {
+                backgroundLoader.displayProgress();
+            }
+
             // Display the menu options using the MenuOption enum
             MenuOption.displayMenu();
 
@@ -84,6 +145,10 @@ public class SchoolManagementSystem {
                 continue;
             }
 
+            // add rows loaded in the background or appended to the file since the last option
+            applyLoadedRows();
+            applyFollowedRows();
+
             // Process the selected menu option using a switch statement
             switch (selectedOption) {
                 case SORT:
@@ -108,8 +173,10 @@ public class SchoolManagementSystem {
                     handleDepartmentStatistics();
                     break;
                 case CHANGE_FILE:
-                    System.out.println("\n>>> CHANGE FILE option selected");
-                    System.out.println("This feature is not yet implemented.");
+                    handleChangeFile();
+                    break;
+                case FOLLOW_FILE:
+                    handleFollowFile();
                     break;
                 case EXIT:
                     running = false;
@@ -119,6 +186,10 @@ public class SchoolManagementSystem {
         }
 
         // Clean up resources
+        fileFollower.stop();
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+        }
         scanner.close();
     }
 
@@ -175,126 +246,180 @@ public class SchoolManagementSystem {
     private boolean loadEmployeeDataFromFile(String filename) {
         System.out.println("\nLoading employee data from file: " + filename);
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            boolean isFirstLine = true;
-            int recordCount = 0;
-
-            // Read file line by line
-            while ((line = br.readLine()) != null) {
-                // Skip the header line (first line with column names)
-                if (isFirstLine) {
-                    isFirstLine = false;
-                    continue;
-                }
+        // check before opening the log, a mistyped name must not get a log of its own
+        if (!new File(filename).isFile()) {
+            System.out.println("Error: File not found: " + filename);
+            System.out.println("New employees will not be saved when the program closes.");
+            return false;
+        }
 
-                // Parse txt line - split by comma
-                String[] data = line.split(",");
-
-                // Validate that we have enough data fields
-                if (data.length >= 9) {
-                    // Extract employee data from CSV fields
-                    String firstName = data[0].trim();
-                    String lastName = data[1].trim();
-                    String gender = data[2].trim();
-                    String email = data[3].trim();
-                    double salary = parseSalary(data[4].trim());
-                    String departmentName = data[5].trim();
-                    String position = data[6].trim();
-                    String jobTitle = data[7].trim();
-                    String company = data[8].trim();
-
-                    // Create the right type of employee based on position field from CSV
-                    // BUG FIX: was creating everyone as Teacher before which was wrong!
-                    Employee employee;
-
-                    // check position column to see if this person is a manager type
-                    if (position.equalsIgnoreCase("Principal")) {
-                        employee = new Principal(firstName, lastName, gender, email,
-                                salary, position, jobTitle, company);
-                        managerList.add((Manager) employee);
-                    } else if (position.equalsIgnoreCase("DeputyPrincipal") ||
-                            position.equalsIgnoreCase("Deputy Principal")) {
-                        employee = new VicePrincipal(firstName, lastName, gender, email,
-                                salary, position, jobTitle, company);
-                        managerList.add((Manager) employee);
-                    } else if (position.equalsIgnoreCase("DepartmentHead")) {
-                        employee = new DepartmentHead(firstName, lastName, gender, email,
-                                salary, position, jobTitle, company);
-                        managerList.add((Manager) employee);
-                    } else {
-                        // regular employee, create as Teacher
-                        employee = new Teacher(firstName, lastName, gender, email,
-                                salary, position, jobTitle, company);
-                    }
-
-                    // Add to employee list
-                    employeeList.add(employee);
-
-                    // Find or create department and assign to employee
-                    Department dept = findOrCreateDepartment(departmentName);
-                    employee.setDepartment(dept);
-                    dept.addStaff(employee);
-
-                    recordCount++;
-                }
+        // open the log first, it may need to finish an interrupted compaction
+        openWriteAheadLog(filename);
+
+        // use the saved snapshot if the file hasn't changed since it was written
+        long snapshotSize = loadFromSnapshot(filename);
+
+        // parse the whole file, or only the rows appended after the snapshot
+        loadedFileSize = Math.max(snapshotSize, 0);
+        if (snapshotSize < 0 || snapshotSize < new File(filename).length()) {
+            // parsed on a background thread, a small file is done before the menu shows
+            backgroundLoader.start(filename, Math.max(snapshotSize, 0));
+            if (!backgroundLoader.waitUntilLoaded(STARTUP_LOAD_WAIT_MS)) {
+                System.out.println("The file is still loading in the background.");
+                System.out.println("Search, sort and Display All Employees use the employees");
+                System.out.println("loaded so far, other options wait until the whole file is in.");
+                System.out.println("========================================");
+                return true;
             }
+            return finishLoadingRecords();
+        }
 
-            // Create core management structure using helper class
-            managerCreator.ensureCoreManagementExists();
+        replayWriteAheadLog();
+        return true;
+    }
 
-            // Create Department Heads for each department
-            managerCreator.createDepartmentHeads();
+    /**
+     * Runs once the background load has added its last rows: works out the
+     * managers, shows the statistics, saves the snapshot and replays the log.
+     */
+    private boolean finishLoadingRecords() {
+        String filename = backgroundLoader.getFilename();
+        long startOffset = backgroundLoader.getStartOffset();
+
+        IOException failure = backgroundLoader.getFailure();
+        if (failure != null) {
+            System.out.println("Error reading file: " + failure.getMessage());
+            System.out.println("Please check that the file exists and is accessible.");
+            return false;
+        }
+        int recordCount = fileLoader.getLastRowCount();
 
-            // Assign managers to employees based on department
-            managerCreator.assignManagersToEmployees();
+        // Create core management structure using helper class
+        managerCreator.ensureCoreManagementExists();
 
-            // Display loading statistics
-            System.out.println("File read successfully!");
-            System.out.println("Successfully loaded " + recordCount + " employee records.");
-            System.out.println("Created " + managerList.size() + " managers.");
-            System.out.println("Created " + departmentList.size() + " departments.");
-            System.out.println("========================================");
+        // Create Department Heads for each department
+        managerCreator.createDepartmentHeads();
 
-            return true;
+        // Assign managers to employees based on department
+        managerCreator.assignManagersToEmployees();
 
+        // Display loading statistics
+        System.out.println("File read successfully!");
+        if (startOffset > 0) {
+            System.out.println("Loaded " + recordCount + " employee records added since the snapshot.");
+        } else {
+            System.out.println("Successfully loaded " + recordCount + " employee records.");
+        }
+        System.out.println("Created " + managerList.size() + " managers.");
+        System.out.println("Created " + departmentList.size() + " departments.");
+        fileLoader.displayLoadStatistics();
+        System.out.println("========================================");
+
+        // save the resolved data so the next start can skip all of the above
+        try {
+            snapshot.save(filename, fileLoader.getLastFileSize());
         } catch (IOException e) {
-            System.out.println("Error reading file: " + e.getMessage());
-            System.out.println("Please check that the file exists and is accessible.");
-            return false;
+            System.out.println("Warning: Could not save snapshot: " + e.getMessage());
         }
+
+        loadedFileSize = fileLoader.getLastFileSize();
+        replayWriteAheadLog();
+        return true;
     }
 
-    private double parseSalary(String salaryStr) {
-        try {
-            return Double.parseDouble(salaryStr);
-        } catch (NumberFormatException e) {
-            return 0.0;
+    /**
+     * Adds the rows the background load has parsed since the last option,
+     * and finishes the load when the last ones are in.
+     */
+    private void applyLoadedRows() {
+        if (!backgroundLoader.applyPendingBatches()) {
+            return;
+        }
+        System.out.println("\nFinished loading " + backgroundLoader.getFilename() + " in the background.");
+        if (!finishLoadingRecords()) {
+            System.out.println("Warning: Could not load all data from the file.");
         }
     }
 
-    private Department findOrCreateDepartment(String departmentName) {
-        // Check if department already exists in our list
-        for (Department dept : departmentList) {
-            if (dept.getDepartmentName().equalsIgnoreCase(departmentName)) {
-                return dept;
-            }
+    /**
+     * Options that change the employees, or report on managers and
+     * departments (which are only worked out once the file is in), wait for
+     * the background load, so they never run against a half loaded file.
+     */
+    private void waitForBackgroundLoad() {
+        if (!backgroundLoader.isLoading()) {
+            return;
+        }
+        System.out.println("Waiting for the data file to finish loading...");
+        while (!backgroundLoader.waitUntilLoaded(1000)) {
+            backgroundLoader.displayProgress();
+        }
+        if (!finishLoadingRecords()) {
+            System.out.println("Warning: Could not load all data from the file.");
+        }
+    }
+
+    /**
+     * Loads the saved snapshot of a data file.
+     * Returns how many bytes of the file it covers, or -1 if it wasn't used.
+     */
+    private long loadFromSnapshot(String filename) {
+        long startTime = System.nanoTime();
+        long snapshotSize;
+        try {
+            snapshotSize = snapshot.load(filename);
+        } catch (IOException e) {
+            System.out.println("Warning: " + e.getMessage() + ", reading the data file instead.");
+            return -1;
+        }
+        if (snapshotSize < 0) {
+            return -1;
         }
 
-        // Department doesn't exist, so create a new one
-        // Try to match the department name to a DepartmentType enum value
-        DepartmentType deptType = DepartmentType.fromDisplayName(departmentName);
+        double millis = (System.nanoTime() - startTime) / 1_000_000.0;
+        System.out.println("File unchanged, loaded saved snapshot in " + String.format("%.1f", millis) + " ms.");
+        System.out.println("Restored " + employeeList.size() + " employees.");
+        System.out.println("Created " + managerList.size() + " managers.");
+        System.out.println("Created " + departmentList.size() + " departments.");
+        System.out.println("========================================");
+        return snapshotSize;
+    }
 
-        // If no match found, use COMPUTER_SCIENCE as default
-        if (deptType == null) {
-            deptType = DepartmentType.COMPUTER_SCIENCE;
+    private void openWriteAheadLog(String filename) {
+        // only a file that exists gets a log, compaction writes into it
+        if (!new File(filename).isFile()) {
+            writeAheadLog = null;
+            return;
         }
+        writeAheadLog = new EmployeeWriteAheadLog(filename, departmentList, fileLoader,
+                managerCreator, WAL_FSYNC_POLICY);
+        try {
+            writeAheadLog.open();
+        } catch (IOException e) {
+            System.out.println("Warning: Could not open employee log: " + e.getMessage());
+            System.out.println("New employees will not be saved when the program closes.");
+            writeAheadLog = null;
+        }
+    }
 
-        // Create new department as AcademicDepartment (suitable for school)
-        Department newDept = new AcademicDepartment(departmentName, deptType);
-        departmentList.add(newDept);
+    private void replayWriteAheadLog() {
+        if (writeAheadLog == null) {
+            return;
+        }
+        try {
+            int replayed = writeAheadLog.replay();
+            if (replayed > 0) {
+                System.out.println("Restored " + replayed + " employees added in earlier sessions.");
+            }
+        } catch (IOException e) {
+            System.out.println("Warning: Could not read employee log: " + e.getMessage());
+        }
+    }
 
-        return newDept;
+    private void logEmployeeAdded(Employee employee) {
+        if (writeAheadLog != null) {
+            writeAheadLog.logAdd(employee);
+        }
     }
 
     private void handleSortEmployees() {
@@ -307,11 +432,9 @@ public class SchoolManagementSystem {
             return;
         }
 
-        // Convert ArrayList to array for the sorting algorithm
-        Employee[] employeeArray = employeeList.toArray(new Employee[0]);
-
-        // Sort and display employees (sorted by first name)
-        SortingAlgorithms.sortAndDisplayFirst(employeeArray, 20);
+        // The name index is always sorted (by first name), so nothing has to be sorted here
+        employeeIndexes.sync(nameIndex);
+        SortingAlgorithms.displayFirst(nameIndex, 20);
     }
 
     private void handleSearchEmployee() {
@@ -324,12 +447,8 @@ public class SchoolManagementSystem {
             return;
         }
 
-        // Sorting the array first
-        Employee[] employeeArray = employeeList.toArray(new Employee[0]);
-        Employee[] sortedArray = SortingAlgorithms.mergeSort(employeeArray);
-
         // Prompt user for search term
-        System.out.print("Enter employee name to search (Last name or Full name): ");
+        System.out.print("Enter employee name to search (Last name or Full name, end with * to list names starting with it): ");
         String searchName = scanner.nextLine().trim();
 
         // Validate input
@@ -338,13 +457,37 @@ public class SchoolManagementSystem {
             return;
         }
 
-        // Perform search and display results
-        // This uses Linear Search (recursive) internally
-        SearchAlgorithms.searchAndDisplay(sortedArray, searchName);
+        // "ros*" lists the names starting with "ros", straight from the name trie
+        if (searchName.endsWith("*") && searchName.length() > 1) {
+            employeeIndexes.sync(nameTrie);
+            SearchAlgorithms.prefixSearchAndDisplay(nameTrie,
+                    searchName.substring(0, searchName.length() - 1), PREFIX_SEARCH_LIMIT);
+            return;
+        }
+
+        // A full name is looked up exactly in the sorted name index first
+        if (searchName.contains(" ")) {
+            employeeIndexes.sync(nameIndex);
+            if (SearchAlgorithms.exactSearchAndDisplay(nameIndex, searchName) > 0) {
+                return;
+            }
+        }
+
+        // Perform search and display results (matches come out in name order).
+        // The cache searches the trigram index, or the packed names for terms
+        // too short to have trigrams, and remembers the results for next time
+        int found = SearchAlgorithms.searchAndDisplay(searchCache, searchName);
+
+        // nothing found: maybe a typo, suggest names that are close
+        if (found == 0) {
+            employeeIndexes.sync(fuzzyIndex);
+            SearchAlgorithms.fuzzySearchAndDisplay(fuzzyIndex, searchName, PREFIX_SEARCH_LIMIT);
+        }
     }
 
     private void handleAddEmployee() {
         System.out.println("\n>>> ADD NEW EMPLOYEE option selected");
+        waitForBackgroundLoad();
         System.out.println("========================================");
 
         // Get employee name
@@ -374,13 +517,13 @@ public class SchoolManagementSystem {
             return;
         }
 
-        // Get and validate salary
+        // Get and validate salary, kept as exact cents from here on
         System.out.print("Enter salary: ");
-        double salary = 0.0;
+        long salaryCents = 0;
         try {
-            salary = Double.parseDouble(scanner.nextLine().trim());
+            salaryCents = SalaryCents.parse(scanner.nextLine());
         } catch (NumberFormatException e) {
-            System.out.println("Invalid salary format. Using default value of 0.0");
+            System.out.println("Invalid salary: " + e.getMessage() + ". Using default value of 0.00");
         }
 
         System.out.print("Enter position (e.g., senior, middle, junior): ");
@@ -410,10 +553,11 @@ public class SchoolManagementSystem {
 
         // Create the new employee as a Teacher (appropriate for school system)
         Employee newEmployee = new Teacher(firstName, lastName, gender, email,
-                salary, position, jobTitle, "School");
+                0, position, jobTitle, "School");
+        newEmployee.setSalaryCents(salaryCents);
 
         // Find or create department and assign to employee
-        Department dept = findOrCreateDepartment(selectedDeptType.getDisplayName());
+        Department dept = Department.findOrCreate(departmentList, selectedDeptType.getDisplayName());
         newEmployee.setDepartment(dept);
         dept.addStaff(newEmployee);
 
@@ -423,8 +567,9 @@ public class SchoolManagementSystem {
             assignedManager.addEmployee(newEmployee);
         }
 
-        // Add to employee list
+        // Add to employee list and keep it for the next session
         employeeList.add(newEmployee);
+        logEmployeeAdded(newEmployee);
 
         // Display success message with all details
         System.out.println("\n========================================");
@@ -468,14 +613,23 @@ public class SchoolManagementSystem {
 
     private void handleGenerateRandomEmployees() {
         System.out.println("\n>>> GENERATE RANDOM EMPLOYEES option selected");
+        waitForBackgroundLoad();
 
         // Prompt for number of employees to generate
         System.out.print("How many random employees would you like to generate? ");
         int count = getUserMenuChoice();
 
         // use helper class to generate employees
+        int sizeBefore = employeeList.size();
         int generatedCount = randomGenerator.generateRandomEmployees(count);
 
+        // keep the generated employees for the next session
+        for (int i = sizeBefore; i < employeeList.size(); i++) {
+            if (employeeList.get(i).isRandomlyGenerated()) {
+                logEmployeeAdded(employeeList.get(i));
+            }
+        }
+
         // display stats
         randomGenerator.displayGenerationStats(generatedCount);
 
@@ -495,19 +649,18 @@ public class SchoolManagementSystem {
             return;
         }
 
-        // Sort employees before displaying
-        Employee[] employeeArray = employeeList.toArray(new Employee[0]);
-        Employee[] sortedEmployees = SortingAlgorithms.mergeSort(employeeArray);
+        // The name index keeps the employees sorted, so they are just read in order
+        employeeIndexes.sync(nameIndex);
 
         System.out.println("========================================");
-        System.out.println("ALL EMPLOYEES (" + sortedEmployees.length + " total)");
+        System.out.println("ALL EMPLOYEES (" + nameIndex.size() + " total)");
         System.out.println("Sorted alphabetically by first name");
         System.out.println("========================================");
 
         // Display each employee with their details
-        for (int i = 0; i < sortedEmployees.length; i++) {
-            Employee emp = sortedEmployees[i];
-            System.out.println((i + 1) + ". " + emp.getFullName() +
+        int number = 0;
+        for (Employee emp : nameIndex) {
+            System.out.println((++number) + ". " + emp.getFullName() +
                     " - " + emp.getJobTitle() +
                     " (" + (emp.getDepartment() != null ? emp.getDepartment().getDepartmentName() : "No Dept") + ")");
         }
@@ -517,6 +670,7 @@ public class SchoolManagementSystem {
 
     private void handleDisplayHierarchy() {
         System.out.println("\n>>> DISPLAY ORGANIZATIONAL HIERARCHY option selected");
+        waitForBackgroundLoad();
 
         // Validate that we have employees to display information about
         if (employeeList.isEmpty()) {
@@ -550,8 +704,112 @@ public class SchoolManagementSystem {
 
     private void handleDepartmentStatistics() {
         System.out.println("\n>>> DEPARTMENT STATISTICS REPORT option selected");
+        waitForBackgroundLoad();
 
         // use helper class to display department statistics
+        employeeIndexes.sync(columnStore);
         departmentReporter.displayDepartmentStatistics();
     }
-}
\ No newline at end of file
+
+    /**
+     * Loads another data file, or the same one again after it was edited.
+     * Only the rows that differ from what is loaded are applied, see
+     * EmployeeFileReloader. Switching files also switches to that file's
+     * employee log.
+     */
+    private void handleChangeFile() {
+        System.out.println("\n>>> CHANGE FILE option selected");
+        waitForBackgroundLoad();
+
+        String filename = promptForFilename();
+        File newFile = new File(filename);
+        if (!newFile.isFile()) {
+            System.out.println("Error: File not found: " + filename);
+            return;
+        }
+
+        boolean sameFile = newFile.getAbsoluteFile().equals(new File(currentFilename).getAbsoluteFile());
+        System.out.println("\n" + (sameFile ? "Reloading" : "Loading") + " employee data from file: " + filename);
+
+        // the reload reads everything the follower would, start it again afterwards
+        boolean wasFollowing = fileFollower.isFollowing();
+        fileFollower.stop();
+        fileFollower.clearPendingBatches();
+
+        // the new file's log has to be open before its data file is read
+        if (!sameFile) {
+            if (writeAheadLog != null) {
+                writeAheadLog.close();
+            }
+            openWriteAheadLog(filename);
+        }
+
+        try {
+            fileReloader.reload(filename, sameFile);
+        } catch (IOException e) {
+            System.out.println("Error reading file: " + e.getMessage());
+            System.out.println("The employee records were not changed.");
+            if (!sameFile) {
+                // keep logging against the file that is still loaded
+                if (writeAheadLog != null) {
+                    writeAheadLog.close();
+                }
+                openWriteAheadLog(currentFilename);
+            }
+            if (wasFollowing) {
+                fileFollower.start(currentFilename, loadedFileSize, writeAheadLog);
+            }
+            return;
+        }
+
+        loadedFileSize = fileLoader.getLastFileSize();
+        employeeIndexes.invalidate();
+        if (!sameFile) {
+            currentFilename = filename;
+            replayWriteAheadLog();
+        }
+        if (wasFollowing) {
+            fileFollower.start(currentFilename, loadedFileSize, writeAheadLog);
+        }
+
+        System.out.println("File read successfully!");
+        fileReloader.displayReloadStatistics();
+        System.out.println("Total: " + employeeList.size() + " employees, " + managerList.size() +
+                " managers, " + departmentList.size() + " departments.");
+        System.out.println("========================================");
+    }
+
+    /**
+     * Turns following the data file on or off. While it is on, rows
+     * appended to the file are read in the background and added before
+     * the next menu option runs.
+     */
+    private void handleFollowFile() {
+        System.out.println("\n>>> FOLLOW DATA FILE option selected");
+        waitForBackgroundLoad();
+
+        if (fileFollower.isFollowing()) {
+            fileFollower.stop();
+            applyFollowedRows();
+            System.out.println("Stopped following " + currentFilename + ".");
+            return;
+        }
+
+        if (!new File(currentFilename).isFile()) {
+            System.out.println("Error: File not found: " + currentFilename);
+            return;
+        }
+
+        fileFollower.start(currentFilename, loadedFileSize, writeAheadLog);
+        System.out.println("Following " + currentFilename + " for new rows.");
+        System.out.println("New rows are added each time you choose a menu option.");
+    }
+
+    private void applyFollowedRows() {
+        int added = fileFollower.applyPendingBatches();
+        if (added > 0) {
+            loadedFileSize = fileFollower.getAppliedOffset();
+            System.out.println("Added " + added + " new employees from " + currentFilename + ".");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package CA_2;
 
+import java.util.Arrays;
+
 /**
  * SearchAlgorithms class provides searching functionality for employee records.
  * Uses linear search with partial name matching for flexible searching.
@@ -10,12 +12,27 @@ package CA_2;
  * - Doesn't need sorted data
  * - Fast enough for typical school sizes (50-500 employees)
  * - O(n) time complexity, but better user experience than exact-match binary search
+ * - Names are matched against each employee's lowercase name key
+ *   (EmployeeNameKey), the same one the sort uses, so nothing is lowercased per search
+ * - One pass over the array, big arrays are split across the cores (ParallelNameSearch)
+ * - Terms too short for the trigram index scan the packed names of the
+ *   column store 8 bytes at a time instead (PackedNameScan)
+ * - For big lists the menu searches with EmployeeTrigramIndex instead, which
+ *   only checks the employees that have every trigram of the search term
+ * - When nothing matches, EmployeeFuzzyIndex suggests names a few typos away
+ * - A full name ("Willow Rosenberg") is first looked up exactly in the sorted
+ *   EmployeeNameIndex, O(log n), and only searched for partially if nobody has it
  *
  * @author Rafael Valentim Ribeiro
  * @version 1.0
  */
 public class SearchAlgorithms {
 
+    // arrays at least this big are searched on all cores (if there is more than one)
+    private static final int PARALLEL_SEARCH_SIZE = 1 << 16;
+
+    private static final ParallelNameSearch PARALLEL_SEARCH = new ParallelNameSearch();
+
     /**
      * Searches for employees matching the search term (partial matching).
      * Searches first name, last name, and full name. Case-insensitive.
@@ -34,54 +51,58 @@ public class SearchAlgorithms {
         // Normalize search term to lowercase
         String searchTerm = searchName.trim().toLowerCase();
 
-        // First pass: count matches
-        int matchCount = 0;
-        for (int i = 0; i < employees.length; i++) {
-            Employee emp = employees[i];
-
-            if (emp == null) {
-                continue;
-            }
-
-            // Get first and last name (null-safe)
-            String firstName = emp.getFirstName() != null ? emp.getFirstName().toLowerCase() : "";
-            String lastName = emp.getLastName() != null ? emp.getLastName().toLowerCase() : "";
-            String fullName = (firstName + " " + lastName).trim();
+        if (employees.length >= PARALLEL_SEARCH_SIZE && PARALLEL_SEARCH.getParallelism() > 1) {
+            // parts of the array scanned as fork/join tasks
+            return PARALLEL_SEARCH.search(employees, searchTerm);
+        }
+        return scan(employees, 0, employees.length, searchTerm);
+    }
 
-            // Check if search term is contained in first name, last name, or full name
-            if (firstName.contains(searchTerm) ||
-                lastName.contains(searchTerm) ||
-                fullName.contains(searchTerm)) {
-                matchCount++;
-            }
+    /**
+     * Same search as linearSearch, but over the packed lowercase names of
+     * the column store instead of the Employee objects (see
+     * PackedNameScan). The matches are in list order.
+     *
+     * @param columnStore Column store of the employees
+     * @param searchName  Name or partial name to search for
+     * @return Array of matching employees (empty if none found)
+     */
+    public static Employee[] linearSearch(EmployeeColumnStore columnStore, String searchName) {
+        if (searchName == null || searchName.trim().isEmpty()) {
+            return new Employee[0];
         }
+        return columnStore.getEmployees(columnStore.filterByName(searchName.trim().toLowerCase()));
+    }
 
-        // Create result array
-        Employee[] matches = new Employee[matchCount];
-        int index = 0;
+    /**
+     * Scans employees[from..to) once and returns the ones matching the
+     * search term, in array order. The matches go into a buffer that grows
+     * when it is full, so there is no second pass to count them first.
+     *
+     * @param searchTerm Lowercase, trimmed search term
+     */
+    static Employee[] scan(Employee[] employees, int from, int to, String searchTerm) {
+        Employee[] matches = new Employee[16];
+        int matchCount = 0;
 
-        // Second pass: collect matches
-        for (int i = 0; i < employees.length; i++) {
+        for (int i = from; i < to; i++) {
             Employee emp = employees[i];
 
             if (emp == null) {
                 continue;
             }
 
-            // Get first and last name (null-safe)
-            String firstName = emp.getFirstName() != null ? emp.getFirstName().toLowerCase() : "";
-            String lastName = emp.getLastName() != null ? emp.getLastName().toLowerCase() : "";
-            String fullName = (firstName + " " + lastName).trim();
-
             // Check if search term is contained in first name, last name, or full name
-            if (firstName.contains(searchTerm) ||
-                lastName.contains(searchTerm) ||
-                fullName.contains(searchTerm)) {
-                matches[index++] = emp;
+            // (the name key already has both names in lowercase)
+            if (EmployeeNameKey.matches(emp.getNameKey(), searchTerm)) {
+                if (matchCount == matches.length) {
+                    matches = Arrays.copyOf(matches, matchCount * 2);
+                }
+                matches[matchCount++] = emp;
             }
         }
 
-        return matches;
+        return Arrays.copyOf(matches, matchCount);
     }
 
     /**
@@ -91,14 +112,116 @@ public class SearchAlgorithms {
      * @param searchName Name to search for
      */
     public static void searchAndDisplay(Employee[] employees, String searchName) {
+        displayResults(searchName, linearSearch(employees, searchName));
+    }
+
+    /**
+     * Looks up a full name ("Willow Rosenberg") in the name index and
+     * displays the employees with exactly that name. Nothing is displayed
+     * if there are none, so the caller can fall back to a partial search.
+     *
+     * @param nameIndex  Name index of the employees
+     * @param searchName Full name to look for
+     * @return Number of employees found
+     */
+    public static int exactSearchAndDisplay(EmployeeNameIndex nameIndex, String searchName) {
+        Employee[] results = nameIndex.findByFullName(searchName);
+        if (results.length > 0) {
+            displayResults(searchName, results);
+        }
+        return results.length;
+    }
+
+    /**
+     * Displays the employees whose name is close to the search term, for
+     * when the name was mistyped ("Rosenburg", "Wilow"). Closest first,
+     * with how many letters are different.
+     *
+     * @param fuzzyIndex Fuzzy index of the employees
+     * @param searchName Name to search for
+     * @param limit      Most employees to display
+     */
+    public static void fuzzySearchAndDisplay(EmployeeFuzzyIndex fuzzyIndex, String searchName, int limit) {
+        int maxDistance = EmployeeFuzzyIndex.defaultMaxDistance(searchName);
+        Employee[] results = fuzzyIndex.search(searchName, maxDistance);
+
+        System.out.println("========================================");
+        System.out.println("DID YOU MEAN?");
+        System.out.println("----------------------------------------");
+        if (results.length == 0) {
+            System.out.println("No similar names found either.");
+            System.out.println("========================================\n");
+            return;
+        }
+        int shown = Math.min(limit, results.length);
+        for (int i = 0; i < shown; i++) {
+            Employee emp = results[i];
+            int distance = fuzzyIndex.distanceOf(emp, searchName);
+            System.out.println((i + 1) + ". " + emp.getFullName() +
+                             " - " + emp.getJobTitle() +
+                             " (" + distance + (distance == 1 ? " letter" : " letters") + " different)");
+        }
+        if (results.length > shown) {
+            System.out.println("... and " + (results.length - shown) + " more");
+        }
+        System.out.println("========================================\n");
+    }
+
+    /**
+     * Searches through the search cache and displays results, in name order.
+     * A term searched before comes straight from the cache. The cache
+     * counters are shown under the results, e.g.
+     * "Search cache: 3 hits, 1 updates, 5 misses, 0 evictions (6 terms, 412 employees)".
+     *
+     * @param searchCache Cache of recent search results
+     * @param searchName  Name to search for
+     * @return Number of employees found
+     */
+    public static int searchAndDisplay(EmployeeSearchCache searchCache, String searchName) {
+        Employee[] results = searchCache.search(searchName);
+        displayResults(searchName, results, "Search cache: " + searchCache.getHits() + " hits, " +
+                searchCache.getUpdates() + " updates, " + searchCache.getMisses() + " misses, " +
+                searchCache.getEvictions() + " evictions (" + searchCache.size() + " terms, " +
+                searchCache.getCachedEmployees() + " employees)");
+        return results.length;
+    }
+
+    /**
+     * Displays the employees whose name starts with a prefix, for when only
+     * the start of the name is known. Uses the name trie, so it doesn't
+     * depend on how many employees there are.
+     *
+     * @param trie   Name trie of the employees
+     * @param prefix Start of the name
+     * @param limit  Most employees to display
+     */
+    public static void prefixSearchAndDisplay(EmployeeNameTrie trie, String prefix, int limit) {
+        displayResults(prefix + "...", trie.searchPrefix(prefix, limit));
+    }
+
+    /**
+     * Displays the results of a search: full details for one employee,
+     * a summary list for more.
+     *
+     * @param searchName Name that was searched for
+     * @param results    Matching employees
+     */
+    private static void displayResults(String searchName, Employee[] results) {
+        displayResults(searchName, results, null);
+    }
+
+    /**
+     * Same, with a note on its own line before the closing line.
+     *
+     * @param note Text to show under the results, or null for none
+     */
+    private static void displayResults(String searchName, Employee[] results, String note) {
         System.out.println("\n========================================");
         System.out.println("EMPLOYEE SEARCH");
         System.out.println("========================================");
         System.out.println("Searching for: " + searchName);
         System.out.println("----------------------------------------");
 
-        Employee[] results = linearSearch(employees, searchName);
-
         if (results.length == 0) {
             System.out.println("No employees found matching '" + searchName + "'");
         } else if (results.length == 1) {
@@ -141,6 +264,10 @@ public class SearchAlgorithms {
             System.out.println("Tip: To get an specific employee, please enter the full name of the employee you wish to search.");
         }
 
+        if (note != null) {
+            System.out.println("----------------------------------------");
+            System.out.println(note);
+        }
         System.out.println("========================================\n");
     }
 
@@ -0,0 +1,171 @@
+package CA_2;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * SearchBenchmark times the linear name search on generated data and
+ * shows how many bytes each version allocates. Not part of the menu, run
+ * it by hand:
+ *
+ *   java CA_2.SearchBenchmark [employees] [rounds]
+ *
+ * The first version of linearSearch (two passes, three new lowercase
+ * Strings per employee in each pass) is kept here as the baseline. Every
+ * version is checked to find exactly the same employees in the same order.
+ * The name keys are built once before timing, like they are after the
+ * first sort or search in the program.
+ *
+ * The parallel search is timed with 1, 2, 4... threads up to the number
+ * of cores. The scans over the packed names of EmployeeColumnStore
+ * (PackedNameScan, a byte at a time and 8 bytes at a time) also show how
+ * many GB of names they go through per second.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class SearchBenchmark {
+
+    // a common first name, a common last name, a full name, a rare and a missing one
+    private static final String[] QUERIES = { "willow", "summers", "buffy summers1", "rris4242", "zzz" };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Employee[] employees = SortBenchmark.generateEmployees(count, new Random(42));
+        for (Employee employee : employees) {
+            employee.getNameKey();
+        }
+        EmployeeColumnStore columnStore = new EmployeeColumnStore();
+        columnStore.rebuild(Arrays.asList(employees));
+        long nameBytes = columnStore.getNameOffsets()[columnStore.getRowCount()];
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Searching " + count + " employees, best of " + rounds + " rounds (" + cores + " cores)");
+
+        for (String query : QUERIES) {
+            String searchTerm = query.trim().toLowerCase();
+            Employee[] expected = classicLinearSearch(employees, query);
+            System.out.println("\"" + query + "\", " + expected.length + " matches:");
+            System.out.println(String.format("%-34s %10s %14s %8s", "", "time (ms)", "allocated (MB)", "GB/s"));
+
+            measure("  classic, two passes", rounds, expected, 0,
+                    () -> classicLinearSearch(employees, query));
+            measure("  two passes, name keys", rounds, expected, 0,
+                    () -> twoPassSearch(employees, searchTerm));
+            measure("  one pass, name keys", rounds, expected, 0,
+                    () -> SearchAlgorithms.scan(employees, 0, employees.length, searchTerm));
+            measure("  packed names, byte kernel", rounds, expected, nameBytes,
+                    () -> columnStore.getEmployees(columnStore.filterByName(searchTerm, PackedNameScan.Kernel.BYTE)));
+            measure("  packed names, word kernel", rounds, expected, nameBytes,
+                    () -> columnStore.getEmployees(columnStore.filterByName(searchTerm, PackedNameScan.Kernel.WORD)));
+
+            // 1, 2, 4... and the core count itself
+            ArrayList<Integer> threadCounts = new ArrayList<>();
+            for (int threads = 1; threads < cores; threads *= 2) {
+                threadCounts.add(threads);
+            }
+            threadCounts.add(cores);
+            for (int threads : threadCounts) {
+                ParallelNameSearch search = new ParallelNameSearch(threads, ParallelNameSearch.DEFAULT_THRESHOLD);
+                measure("  parallel, " + threads + " thread(s)", rounds, expected, 0,
+                        () -> search.search(employees, searchTerm));
+            }
+        }
+    }
+
+    private interface SearchRun {
+        Employee[] search();
+    }
+
+    /**
+     * @param bytes Bytes of names the search goes through, for the GB/s (0 to leave it out)
+     */
+    private static void measure(String name, int rounds, Employee[] expected, long bytes, SearchRun run) {
+        long bestNanos = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int round = 0; round < rounds; round++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Employee[] results = run.search();
+            long elapsed = System.nanoTime() - start;
+            allocated = allocatedBytes() - bytesBefore;
+            bestNanos = Math.min(bestNanos, elapsed);
+
+            if (!Arrays.equals(results, expected)) {
+                throw new IllegalStateException(name + " found different employees than the classic search");
+            }
+        }
+        System.out.println(String.format("%-34s %10.1f %14s %8s", name, bestNanos / 1_000_000.0,
+                allocated >= 0 ? String.format("%.1f", allocated / (1024.0 * 1024.0)) : "n/a",
+                bytes > 0 ? String.format("%.2f", bytes / (double) bestNanos) : ""));
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM can't tell.
+     * Work done on pool threads isn't counted.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * linearSearch before the name keys: counts the matches in one pass and
+     * collects them in a second, lowercasing both names in each.
+     */
+    static Employee[] classicLinearSearch(Employee[] employees, String searchName) {
+        String searchTerm = searchName.trim().toLowerCase();
+
+        int matchCount = 0;
+        for (Employee emp : employees) {
+            if (emp != null && classicMatches(emp, searchTerm)) {
+                matchCount++;
+            }
+        }
+
+        Employee[] matches = new Employee[matchCount];
+        int index = 0;
+        for (Employee emp : employees) {
+            if (emp != null && classicMatches(emp, searchTerm)) {
+                matches[index++] = emp;
+            }
+        }
+        return matches;
+    }
+
+    private static boolean classicMatches(Employee emp, String searchTerm) {
+        String firstName = emp.getFirstName() != null ? emp.getFirstName().toLowerCase() : "";
+        String lastName = emp.getLastName() != null ? emp.getLastName().toLowerCase() : "";
+        String fullName = (firstName + " " + lastName).trim();
+        return firstName.contains(searchTerm) || lastName.contains(searchTerm) || fullName.contains(searchTerm);
+    }
+
+    /**
+     * linearSearch with the name keys but still two passes.
+     */
+    private static Employee[] twoPassSearch(Employee[] employees, String searchTerm) {
+        int matchCount = 0;
+        for (Employee emp : employees) {
+            if (emp != null && EmployeeNameKey.matches(emp.getNameKey(), searchTerm)) {
+                matchCount++;
+            }
+        }
+
+        Employee[] matches = new Employee[matchCount];
+        int index = 0;
+        for (Employee emp : employees) {
+            if (emp != null && EmployeeNameKey.matches(emp.getNameKey(), searchTerm)) {
+                matches[index++] = emp;
+            }
+        }
+        return matches;
+    }
+}
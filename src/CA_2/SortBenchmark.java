@@ -0,0 +1,266 @@
+package CA_2;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * SortBenchmark times the employee sorts on generated data and shows how
+ * many bytes each one allocates. Not part of the menu, run it by hand:
+ *
+ *   java CA_2.SortBenchmark [employees] [rounds]
+ *
+ * The classic merge sort (two new arrays per merge, recursion down to
+ * single elements) with the comparator that lowercases both names on every
+ * comparison is kept here as the baseline. Every sort is checked to give
+ * exactly the same order as the baseline, so stability is checked too.
+ * Building the name keys (EmployeeNameKey) is timed on its own first,
+ * after that the name comparator doesn't allocate anything.
+ * The MSD radix sort (NameRadixSort) is timed next to the merge sorts.
+ * The other orders (salary, department, job title) are timed through
+ * SortingAlgorithms.sort against the same order built from boxing
+ * Comparator.comparing() calls.
+ * The parallel sort is timed with 1, 2, 4... threads up to the number of
+ * cores; 10M employees need a heap of about 6 GB (-Xmx6g).
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class SortBenchmark {
+
+    private static final String[] FIRST_NAMES = {
+            "Buffy", "Willow", "Xander", "Giles", "Cordelia", "Oz", "Tara", "Anya",
+            "Spike", "Dawn", "Faith", "Riley", "Jonathan", "Andrew", "Amy", "Joyce"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Summers", "Rosenberg", "Harris", "Chase", "Osbourne", "Maclay", "Jenkins",
+            "Wells", "Finn", "Levinson", "Madison", "Giles", "Lehane", "Kendall"
+    };
+
+    private static final String[] JOB_TITLES = {
+            "Teacher", "Librarian", "Counselor", "Coach", "Nurse", "Secretary", "Janitor"
+    };
+
+    // Comparator that allocates nothing, to show what the sort itself allocates
+    private static final Comparator<Employee> RAW_NAME_ORDER = (a, b) -> {
+        int result = a.getFirstName().compareTo(b.getFirstName());
+        return result != 0 ? result : a.getLastName().compareTo(b.getLastName());
+    };
+
+    // the name comparator from before the name keys: 4 new Strings per comparison
+    private static final Comparator<Employee> LOWERCASE_NAME_ORDER = (a, b) -> {
+        int result = a.getFirstName().toLowerCase().compareTo(b.getFirstName().toLowerCase());
+        return result != 0 ? result : a.getLastName().toLowerCase().compareTo(b.getLastName().toLowerCase());
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        Employee[] random = generateEmployees(count, new Random(42));
+
+        System.out.println("Sorting " + count + " employees, best of " + rounds + " rounds");
+        System.out.println(String.format("%-34s %10s %14s", "", "time (ms)", "allocated (MB)"));
+
+        // once per employee, the sorts below reuse the keys
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (Employee employee : random) {
+            employee.getNameKey();
+        }
+        System.out.println(String.format("%-34s %10.1f %14.1f", "building name keys",
+                (System.nanoTime() - start) / 1_000_000.0, (allocatedBytes() - bytesBefore) / (1024.0 * 1024.0)));
+
+        Employee[] nearlySorted = SortingAlgorithms.mergeSort(random);
+        shuffleSome(nearlySorted, count / 100, new Random(7));
+
+        runCase("random order", random, rounds);
+        runCase("nearly sorted (1% moved)", nearlySorted, rounds);
+        runParallelCase(random, rounds);
+        runOrderCase(random, rounds);
+    }
+
+    private static void runOrderCase(Employee[] input, int rounds) {
+        System.out.println("other orders, random order:");
+
+        measure("  name (mergeSort)", input, rounds, SortingAlgorithms.mergeSort(input),
+                copy -> sortInto(copy, EmployeeSortOrder.BY_NAME));
+
+        Comparator<Employee> bySalary = Comparator.comparing(Employee::getSalary)
+                .thenComparing(SortingAlgorithms.NAME_ORDER);
+        Comparator<Employee> byDepartment = Comparator.comparing(
+                        (Employee employee) -> employee.getDepartment().getDepartmentName(),
+                        String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(Employee::getSalary)
+                .thenComparing(SortingAlgorithms.NAME_ORDER);
+        Comparator<Employee> byJobTitle = Comparator.comparing(Employee::getJobTitle, String.CASE_INSENSITIVE_ORDER)
+                .thenComparing(SortingAlgorithms.NAME_ORDER);
+
+        runOrder("salary", input, rounds, bySalary, EmployeeSortOrder.BY_SALARY);
+        runOrder("department, salary", input, rounds, byDepartment, EmployeeSortOrder.BY_DEPARTMENT_THEN_SALARY);
+        runOrder("job title", input, rounds, byJobTitle, EmployeeSortOrder.BY_JOB_TITLE);
+    }
+
+    private static void runOrder(String name, Employee[] input, int rounds,
+                                 Comparator<Employee> boxed, EmployeeSortOrder order) {
+        Employee[] expected = Arrays.copyOf(input, input.length);
+        HybridMergeSort.sort(expected, boxed);
+
+        measure("  " + name + ", boxed comparator", input, rounds, expected,
+                copy -> HybridMergeSort.sort(copy, boxed));
+        measure("  " + name + ", key columns", input, rounds, expected,
+                copy -> sortInto(copy, order));
+    }
+
+    private static void sortInto(Employee[] copy, EmployeeSortOrder order) {
+        Employee[] sorted = SortingAlgorithms.sort(copy, order);
+        System.arraycopy(sorted, 0, copy, 0, copy.length);
+    }
+
+    private static void runParallelCase(Employee[] input, int rounds) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("parallel merge sort, random order (" + cores + " cores):");
+
+        Employee[] expected = Arrays.copyOf(input, input.length);
+        HybridMergeSort.sort(expected, SortingAlgorithms.NAME_ORDER);
+
+        // 1, 2, 4... and the core count itself
+        ArrayList<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(cores);
+
+        for (int threads : threadCounts) {
+            ParallelMergeSort sorter = new ParallelMergeSort(threads, ParallelMergeSort.DEFAULT_THRESHOLD);
+            measure("  " + threads + " thread(s), name keys", input, rounds, expected,
+                    copy -> sorter.sort(copy, SortingAlgorithms.NAME_ORDER));
+        }
+    }
+
+    private static void runCase(String name, Employee[] input, int rounds) {
+        System.out.println(name + ":");
+
+        Employee[] expected = Arrays.copyOf(input, input.length);
+        classicMergeSort(expected, LOWERCASE_NAME_ORDER);
+        Employee[] expectedRaw = Arrays.copyOf(input, input.length);
+        classicMergeSort(expectedRaw, RAW_NAME_ORDER);
+
+        measure("  classic, lowercasing comparator", input, rounds, expected,
+                copy -> classicMergeSort(copy, LOWERCASE_NAME_ORDER));
+        measure("  hybrid, lowercasing comparator", input, rounds, expected,
+                copy -> HybridMergeSort.sort(copy, LOWERCASE_NAME_ORDER));
+        measure("  hybrid, name keys", input, rounds, expected,
+                copy -> HybridMergeSort.sort(copy, SortingAlgorithms.NAME_ORDER));
+        measure("  MSD radix, name keys", input, rounds, expected,
+                NameRadixSort::sort);
+        measure("  classic, non-allocating comparator", input, rounds, expectedRaw,
+                copy -> classicMergeSort(copy, RAW_NAME_ORDER));
+        measure("  hybrid, non-allocating comparator", input, rounds, expectedRaw,
+                copy -> HybridMergeSort.sort(copy, RAW_NAME_ORDER));
+    }
+
+    private interface SortRun {
+        void sort(Employee[] copy);
+    }
+
+    private static void measure(String name, Employee[] input, int rounds, Employee[] expected, SortRun run) {
+        long bestNanos = Long.MAX_VALUE;
+        long allocated = 0;
+        for (int round = 0; round < rounds; round++) {
+            Employee[] copy = Arrays.copyOf(input, input.length);
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            run.sort(copy);
+            long elapsed = System.nanoTime() - start;
+            allocated = allocatedBytes() - bytesBefore;
+            bestNanos = Math.min(bestNanos, elapsed);
+
+            if (!Arrays.equals(copy, expected)) {
+                throw new IllegalStateException(name + " gave a different order than the classic sort");
+            }
+        }
+        System.out.println(String.format("%-34s %10.1f %14s", name, bestNanos / 1_000_000.0,
+                allocated >= 0 ? String.format("%.1f", allocated / (1024.0 * 1024.0)) : "n/a"));
+    }
+
+    /**
+     * Bytes allocated by this thread so far, or -1 if the JVM can't tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    static Employee[] generateEmployees(int count, Random random) {
+        DepartmentType[] types = DepartmentType.values();
+        Department[] departments = new Department[types.length];
+        for (int i = 0; i < departments.length; i++) {
+            departments[i] = new AcademicDepartment(types[i].getDisplayName(), types[i]);
+        }
+
+        Employee[] employees = new Employee[count];
+        for (int i = 0; i < count; i++) {
+            String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+            String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)] + random.nextInt(count / 10 + 1);
+            employees[i] = new Teacher(firstName, lastName, "Female",
+                    firstName.toLowerCase() + "." + i + "@sunnydalehs.com",
+                    25000 + random.nextInt(75000), "junior",
+                    JOB_TITLES[random.nextInt(JOB_TITLES.length)], "Sunnydale High School");
+            // not added to the department's staff list, only the sort key matters here
+            employees[i].setDepartment(departments[random.nextInt(departments.length)]);
+        }
+        return employees;
+    }
+
+    private static void shuffleSome(Employee[] employees, int swaps, Random random) {
+        for (int i = 0; i < swaps; i++) {
+            int a = random.nextInt(employees.length);
+            int b = random.nextInt(employees.length);
+            Employee swap = employees[a];
+            employees[a] = employees[b];
+            employees[b] = swap;
+        }
+    }
+
+    // the merge sort SortingAlgorithms used before HybridMergeSort, as the baseline
+
+    private static void classicMergeSort(Employee[] employees, Comparator<Employee> comparator) {
+        classicMergeSort(employees, 0, employees.length - 1, comparator);
+    }
+
+    private static void classicMergeSort(Employee[] employees, int left, int right, Comparator<Employee> comparator) {
+        if (left >= right) {
+            return;
+        }
+        int middle = left + (right - left) / 2;
+        classicMergeSort(employees, left, middle, comparator);
+        classicMergeSort(employees, middle + 1, right, comparator);
+
+        Employee[] leftArray = Arrays.copyOfRange(employees, left, middle + 1);
+        Employee[] rightArray = Arrays.copyOfRange(employees, middle + 1, right + 1);
+        int i = 0;
+        int j = 0;
+        int k = left;
+        while (i < leftArray.length && j < rightArray.length) {
+            if (comparator.compare(leftArray[i], rightArray[j]) <= 0) {
+                employees[k++] = leftArray[i++];
+            } else {
+                employees[k++] = rightArray[j++];
+            }
+        }
+        while (i < leftArray.length) {
+            employees[k++] = leftArray[i++];
+        }
+        while (j < rightArray.length) {
+            employees[k++] = rightArray[j++];
+        }
+    }
+}
@@ -1,26 +1,42 @@
 package CA_2;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
 /**
  * SortingAlgorithms class provides sorting functionality for employee records.
- * This class implements Merge Sort, a recursive divide-and-conquer algorithm.
+ * This class implements Merge Sort, a divide-and-conquer algorithm.
+ * The sorting itself is done by HybridMergeSort, a merge sort that keeps
+ * runs already in order, insertion sorts short runs and merges through a
+ * single buffer. Big arrays are sorted by ParallelMergeSort on all cores.
  *
  * Why Merge Sort?
- * - Properly recursive (divides problem into smaller parts, solves them, then merges)
+ * - Divide and conquer (splits the data into sorted runs, then merges them)
  * - O(n log n) time complexity guaranteed (unlike Quick Sort which can be O(n²))
  * - Stable sort (keeps equal elements in same order)
  * - Works well for employee data that needs reliable performance
  *
- * Time Complexity: O(n log n) in all cases
- * Space Complexity: O(n) - needs temporary arrays for merging
+ * Time Complexity: O(n log n) worst case, O(n) when the input is already sorted
+ * Space Complexity: O(n) - one buffer for the whole sort
  *
  * @author Rafael Valentim Ribeiro
  * @version 2.0
  */
 public class SortingAlgorithms {
 
+    // first name, then last name, ignoring case
+    static final Comparator<Employee> NAME_ORDER = SortingAlgorithms::compareEmployees;
+
+    // arrays at least this big are sorted on all cores (if there is more than one)
+    private static final int PARALLEL_SORT_SIZE = 1 << 16;
+
+    private static final ParallelMergeSort PARALLEL_SORT = new ParallelMergeSort();
+
     /**
      * Sorts an array of employees using Merge Sort.
      * Sorts by first name first, then last name if first names are equal.
+     * The input array is left as it is, a sorted copy is returned.
      *
      * @param employees Array of Employee objects to sort
      * @return Sorted array of Employee objects
@@ -34,101 +50,108 @@ public class SortingAlgorithms {
             return employees;
         }
 
-        Employee[] sortedArray = new Employee[employees.length];
+        Employee[] sortedArray = Arrays.copyOf(employees, employees.length);
 
-        for (int i = 0; i < employees.length; i++) {
-            sortedArray[i] = employees[i];
+        if (sortedArray.length >= PARALLEL_SORT_SIZE && PARALLEL_SORT.getParallelism() > 1) {
+            // halves sorted and merged as fork/join tasks
+            PARALLEL_SORT.sort(sortedArray, NAME_ORDER);
+        } else {
+            // natural runs + insertion sort for short runs + one merge buffer
+            HybridMergeSort.sort(sortedArray, NAME_ORDER);
         }
 
-        mergeSortRecursive(sortedArray, 0, sortedArray.length - 1);
-
         return sortedArray;
     }
 
     /**
-     * Recursive helper method for Merge Sort.
-     * Divides array in half, recursively sorts each half, then merges them.
+     * Sorts employees by first name, then last name, like mergeSort, but
+     * with an MSD radix sort over the name keys (see NameRadixSort).
+     * Gives exactly the same order as mergeSort; it can be faster on
+     * millions of employees whose names share long prefixes.
+     * The input array is left as it is, a sorted copy is returned.
      *
-     * @param employees The array being sorted
-     * @param left      Starting index of subarray
-     * @param right     Ending index of subarray
+     * @param employees Array of Employee objects to sort
+     * @return Sorted array of Employee objects
      */
-    private static void mergeSortRecursive(Employee[] employees, int left, int right) {
-        if (left >= right) {
-            return;
+    public static Employee[] radixSort(Employee[] employees) {
+        if (employees == null || employees.length == 0) {
+            return new Employee[0];
         }
 
-        // Using left + (right - left) / 2 to avoid integer overflow
-        int middle = left + (right - left) / 2;
-
-        // RECURSIVE STEP 1: Sort the left half
-        mergeSortRecursive(employees, left, middle);
-
-        // RECURSIVE STEP 2: Sort the right half
-        mergeSortRecursive(employees, middle + 1, right);
-
-        // MERGE STEP: Combine the two sorted halves
-        merge(employees, left, middle, right);
+        Employee[] sortedArray = Arrays.copyOf(employees, employees.length);
+        NameRadixSort.sort(sortedArray);
+        return sortedArray;
     }
 
     /**
-     * Merges two sorted subarrays into one sorted subarray.
-     * Left subarray: employees[left...middle]
-     * Right subarray: employees[middle+1...right]
+     * Sorts an applicants file by name into another file without loading
+     * it, for files too big for memory (see ExternalEmployeeSort). The rows
+     * end up in the same order mergeSort would put the employees in.
      *
-     * @param employees The array containing both subarrays
-     * @param left      Starting index of left subarray
-     * @param middle    Ending index of left subarray
-     * @param right     Ending index of right subarray
+     * @param inputFile   Applicants file to sort
+     * @param outputFile  File to write the sorted rows to, header first
+     * @param memoryLimit Most bytes of rows and buffers to hold at once
+     * @return Number of rows written
+     * @throws IOException if a file can't be read or written
      */
-    private static void merge(Employee[] employees, int left, int middle, int right) {
-        int leftSize = middle - left + 1;
-        int rightSize = right - middle;
-
-        Employee[] leftArray = new Employee[leftSize];
-        Employee[] rightArray = new Employee[rightSize];
+    public static long externalSort(String inputFile, String outputFile, long memoryLimit) throws IOException {
+        return new ExternalEmployeeSort(memoryLimit, null).sort(inputFile, outputFile);
+    }
 
-        for (int i = 0; i < leftSize; i++) {
-            leftArray[i] = employees[left + i];
+    /**
+     * Sorts employees in any order, e.g. by salary or by department then
+     * salary (see EmployeeSortOrder). The input array is left as it is, a
+     * sorted copy is returned. Stable: employees with all keys equal keep
+     * their order. Null entries go at the end, like in mergeSort.
+     *
+     * The keys are copied into int/long columns first and the row numbers
+     * are sorted by those, so no values are boxed while sorting.
+     *
+     * @param employees Array of Employee objects to sort
+     * @param order     Keys to sort by
+     * @return Sorted array of Employee objects
+     */
+    public static Employee[] sort(Employee[] employees, EmployeeSortOrder order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Sort order cannot be null");
         }
-
-        for (int j = 0; j < rightSize; j++) {
-            rightArray[j] = employees[middle + 1 + j];
+        if (employees == null || employees.length == 0) {
+            return new Employee[0];
+        }
+        if (order.isNameOrder()) {
+            return mergeSort(employees);
         }
 
-        int i = 0;
-        int j = 0;
-        int k = left;
-
-        while (i < leftSize && j < rightSize) {
-            int comparison = compareEmployees(leftArray[i], rightArray[j]);
-
-            if (comparison <= 0) {
-                employees[k] = leftArray[i];
-                i++;
-            } else {
-                employees[k] = rightArray[j];
-                j++;
+        // the keys are only built for real employees, nulls are added back at the end
+        int count = 0;
+        Employee[] rows = new Employee[employees.length];
+        for (Employee employee : employees) {
+            if (employee != null) {
+                rows[count++] = employee;
             }
-            k++;
+        }
+        if (count < rows.length) {
+            rows = Arrays.copyOf(rows, count);
         }
 
-        while (i < leftSize) {
-            employees[k] = leftArray[i];
-            i++;
-            k++;
+        int[] rowOrder = new int[count];
+        for (int i = 0; i < count; i++) {
+            rowOrder[i] = i;
         }
+        HybridMergeSort.sort(rowOrder, order.rowComparator(rows));
 
-        while (j < rightSize) {
-            employees[k] = rightArray[j];
-            j++;
-            k++;
+        Employee[] sortedArray = new Employee[employees.length];
+        for (int i = 0; i < count; i++) {
+            sortedArray[i] = rows[rowOrder[i]];
         }
+        return sortedArray;
     }
 
     /**
      * Compares two employees by first name, then last name.
      * Uses case-insensitive comparison.
+     * The lowercase names come from each employee's name key, which is
+     * built once, so comparing doesn't create any new Strings.
      *
      * @param emp1 First employee
      * @param emp2 Second employee
@@ -145,26 +168,18 @@ public class SortingAlgorithms {
             return -1;
         }
 
-        // Extract and normalize first names for comparison
-        String firstName1 = emp1.getFirstName() != null ? emp1.getFirstName().toLowerCase() : "";
-        String firstName2 = emp2.getFirstName() != null ? emp2.getFirstName().toLowerCase() : "";
-
-        // Compare first names alphabetically
-        int firstNameComparison = firstName1.compareTo(firstName2);
-
-        if (firstNameComparison != 0) {
-            return firstNameComparison;
-        }
-
-        // First names are the same, so compare last names
-        String lastName1 = emp1.getLastName() != null ? emp1.getLastName().toLowerCase() : "";
-        String lastName2 = emp2.getLastName() != null ? emp2.getLastName().toLowerCase() : "";
-
-        return lastName1.compareTo(lastName2);
+        // packed prefixes first, then the whole "first\0last" keys
+        return EmployeeNameKey.compare(emp1, emp2);
     }
 
     /**
      * Sorts employees and displays the first N results.
+     * Only the first N are needed, so instead of sorting everything they
+     * are picked with a BoundedHeap: O(n log N), and the same employees in
+     * the same order as the first N of mergeSort. Randomly generated
+     * employees are counted in the same pass.
+     * The menu keeps a name index and uses displayFirst(nameIndex, n), this
+     * is for an array that has no index.
      *
      * @param employees    Array of employees to sort
      * @param displayCount Number of employees to display
@@ -175,15 +190,43 @@ public class SortingAlgorithms {
             return;
         }
 
-        Employee[] sortedEmployees = mergeSort(employees);
+        BoundedHeap<Employee> firstEmployees = new BoundedHeap<>(
+                Math.max(0, Math.min(displayCount, employees.length)), NAME_ORDER);
 
         int randomCount = 0;
-        for (Employee emp : sortedEmployees) {
+        for (Employee emp : employees) {
+            if (emp == null) {
+                continue;
+            }
             if (emp.isRandomlyGenerated()) {
                 randomCount++;
             }
+            firstEmployees.offer(emp);
         }
+        Employee[] sortedEmployees = firstEmployees.toSortedArray(new Employee[firstEmployees.size()]);
 
+        displayFirst(sortedEmployees, displayCount, randomCount, employees.length);
+    }
+
+    /**
+     * Displays the first N employees of a name index. The index is already
+     * in order, so nothing is sorted: the first N are read off its start,
+     * and the index counts the randomly generated employees as they are
+     * added, so the list isn't gone through at all.
+     *
+     * @param nameIndex    Index holding the employees in name order
+     * @param displayCount Number of employees to display
+     */
+    public static void displayFirst(EmployeeNameIndex nameIndex, int displayCount) {
+        if (nameIndex.size() == 0) {
+            System.out.println("No employees to sort.");
+            return;
+        }
+
+        displayFirst(nameIndex.first(displayCount), displayCount, nameIndex.getRandomCount(), nameIndex.size());
+    }
+
+    private static void displayFirst(Employee[] sortedEmployees, int displayCount, int randomCount, int total) {
         System.out.println("\n========================================");
         System.out.println("SORTED EMPLOYEE LIST (First " + displayCount + ")");
         System.out.println("Sorted by First Name");
@@ -192,9 +235,7 @@ public class SortingAlgorithms {
         }
         System.out.println("========================================");
 
-        int countToDisplay = Math.min(displayCount, sortedEmployees.length);
-
-        for (int i = 0; i < countToDisplay; i++) {
+        for (int i = 0; i < sortedEmployees.length; i++) {
             Employee emp = sortedEmployees[i];
             String randomTag = emp.isRandomlyGenerated() ? " [RANDOM]" : "";
 
@@ -205,7 +246,7 @@ public class SortingAlgorithms {
         }
 
         System.out.println("========================================");
-        System.out.println("Total employees sorted: " + sortedEmployees.length);
+        System.out.println("Total employees sorted: " + total);
         System.out.println("========================================\n");
     }
 }
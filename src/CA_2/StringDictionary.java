@@ -0,0 +1,56 @@
+package CA_2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * StringDictionary gives each distinct String a small int code.
+ * Columns that repeat a handful of values (position, company, gender...)
+ * can then be stored and compared as ints.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public class StringDictionary {
+
+    private HashMap<String, Integer> codes;
+    private ArrayList<String> values;
+
+    public StringDictionary() {
+        this.codes = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+
+    /**
+     * Returns the code of a value, adding it if it is new.
+     * null is stored as the empty string.
+     */
+    public int encode(String value) {
+        if (value == null) {
+            value = "";
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Returns the code of a value, or -1 if it has never been encoded.
+     */
+    public int lookup(String value) {
+        Integer code = codes.get(value != null ? value : "");
+        return code != null ? code : -1;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
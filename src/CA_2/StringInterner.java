@@ -0,0 +1,47 @@
+package CA_2;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * StringInterner keeps one shared String per distinct value of the employee
+ * fields that repeat on almost every row: gender, position, job title,
+ * company and department name.
+ *
+ * Without it every loaded row holds its own copy of "Sunnydale High School"
+ * and friends. Employee runs these fields through intern() when it is
+ * created, so a million employees share a few dozen Strings, and comparing
+ * two of them usually stops at the == check inside String.equals().
+ *
+ * Names and emails are nearly all different, so they are left alone.
+ * The pool is shared by the parallel loader threads, hence ConcurrentHashMap.
+ *
+ * @author Rafael Valentim Ribeiro
+ * @version 1.0
+ */
+public final class StringInterner {
+
+    private static final ConcurrentHashMap<String, String> POOL = new ConcurrentHashMap<>();
+
+    private StringInterner() {
+        // only static methods
+    }
+
+    /**
+     * Returns the shared instance equal to value, adding value if it is new.
+     * null stays null.
+     */
+    public static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = POOL.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    /**
+     * Number of distinct values in the pool.
+     */
+    public static int size() {
+        return POOL.size();
+    }
+}